@@ -0,0 +1,199 @@
+package org.metaborg.spoofax.eclipse.util;
+
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.swt.graphics.Color;
+import org.eclipse.swt.graphics.RGB;
+import org.eclipse.swt.widgets.Display;
+
+import com.google.common.collect.HashMultiset;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Multiset;
+import com.google.common.collect.Sets;
+
+/**
+ * Registry of Eclipse colors, shared by RGB value, such that styling a document does not allocate a color for each
+ * style range. Colors are acquired through a {@link Lease}, which holds a reference to each distinct color it returned.
+ * A color is disposed when the last lease that references it is closed, or when the display is disposed.
+ *
+ * THREADING: thread-safe, colors can be acquired from any thread.
+ */
+public final class SharedColors {
+    private static final Map<Display, SharedColors> registries = Maps.newHashMap();
+
+    private final Display display;
+    private final Map<RGB, Color> colors = Maps.newHashMap();
+    private final Multiset<RGB> references = HashMultiset.create();
+    private final Lease displayLease;
+
+
+    private SharedColors(Display display) {
+        this.display = display;
+        this.displayLease = new Lease();
+    }
+
+
+    /**
+     * Returns the color registry for given display, creating it if needed. The registry is disposed when the display
+     * is disposed.
+     *
+     * @param display
+     *            Display to get the color registry for.
+     * @return Color registry.
+     */
+    public static synchronized SharedColors of(final Display display) {
+        SharedColors registry = registries.get(display);
+        if(registry == null) {
+            final SharedColors newRegistry = new SharedColors(display);
+            registries.put(display, newRegistry);
+            display.asyncExec(new Runnable() {
+                @Override public void run() {
+                    display.disposeExec(new Runnable() {
+                        @Override public void run() {
+                            newRegistry.dispose();
+                        }
+                    });
+                }
+            });
+            registry = newRegistry;
+        }
+        return registry;
+    }
+
+    /**
+     * Disposes all colors of all displays, for example when the plugin is stopped.
+     */
+    public static synchronized void disposeAll() {
+        for(SharedColors registry : registries.values()) {
+            registry.disposeColors();
+        }
+        registries.clear();
+    }
+
+
+    /**
+     * @return New lease to acquire colors with. Close the lease when the colors it returned are no longer used.
+     */
+    public Lease lease() {
+        return new Lease();
+    }
+
+    /**
+     * @return Lease that lives as long as the display, for colors that have no clear owner.
+     */
+    public Lease displayLease() {
+        return displayLease;
+    }
+
+    /**
+     * @return Number of colors that are currently allocated.
+     */
+    public synchronized int size() {
+        return colors.size();
+    }
+
+
+    private synchronized Color acquire(RGB rgb) {
+        references.add(rgb);
+        Color color = colors.get(rgb);
+        if(color == null || color.isDisposed()) {
+            color = new Color(display, rgb);
+            colors.put(rgb, color);
+        }
+        return color;
+    }
+
+    private synchronized void release(RGB rgb) {
+        if(references.remove(rgb, 1) > 1) {
+            return;
+        }
+        final Color color = colors.remove(rgb);
+        if(color != null && !color.isDisposed()) {
+            color.dispose();
+        }
+    }
+
+    private void dispose() {
+        synchronized(SharedColors.class) {
+            if(registries.get(display) == this) {
+                registries.remove(display);
+            }
+        }
+        disposeColors();
+    }
+
+    private synchronized void disposeColors() {
+        for(Color color : colors.values()) {
+            if(!color.isDisposed()) {
+                color.dispose();
+            }
+        }
+        colors.clear();
+        references.clear();
+    }
+
+
+    /**
+     * Set of colors acquired by one owner, such as an editor. Each distinct color is referenced once per lease, no
+     * matter how many times it is acquired.
+     */
+    public final class Lease implements AutoCloseable {
+        private final Set<RGB> acquired = Sets.newHashSet();
+        private boolean closed;
+
+
+        private Lease() {
+        }
+
+
+        /**
+         * Returns a shared color for given Java color. Do not dispose the returned color.
+         *
+         * @param color
+         *            Java color.
+         * @return Shared Eclipse color.
+         */
+        public Color get(java.awt.Color color) {
+            return get(new RGB(color.getRed(), color.getGreen(), color.getBlue()));
+        }
+
+        /**
+         * Returns a shared color for given RGB value. Do not dispose the returned color.
+         *
+         * @param rgb
+         *            RGB value.
+         * @return Shared Eclipse color.
+         */
+        public Color get(RGB rgb) {
+            synchronized(SharedColors.this) {
+                if(closed) {
+                    // Styling that races with closing the owner, keep the color alive as long as the display.
+                    return displayLease.get(rgb);
+                }
+                final Color color = colors.get(rgb);
+                // Also acquire again if all colors were disposed, which also cleared the references.
+                if(acquired.add(rgb) || color == null || color.isDisposed()) {
+                    return acquire(rgb);
+                }
+                return color;
+            }
+        }
+
+        /**
+         * Releases the colors acquired by this lease, disposing colors that are not referenced by other leases.
+         */
+        @Override public void close() {
+            synchronized(SharedColors.this) {
+                if(closed) {
+                    return;
+                }
+                closed = true;
+                for(RGB rgb : acquired) {
+                    release(rgb);
+                }
+                acquired.clear();
+            }
+        }
+    }
+}
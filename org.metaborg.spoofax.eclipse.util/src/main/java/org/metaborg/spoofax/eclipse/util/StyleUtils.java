@@ -28,15 +28,30 @@ public final class StyleUtils {
      * @param length
      *            Length of the text.
      * @param display
-     *            Display to create the Eclipse text presentation on.
+     *            Display to create the Eclipse text presentation on. Colors are shared and live as long as the display.
      * @return Eclipse text presentation.
      */
     public static TextPresentation createTextPresentation(java.awt.Color color, int length, Display display) {
+        return createTextPresentation(color, length, SharedColors.of(display).displayLease());
+    }
+
+    /**
+     * Creates an Eclipse text presentation that colors the entire range as one color.
+     * 
+     * @param color
+     *            Text foreground color to use.
+     * @param length
+     *            Length of the text.
+     * @param colors
+     *            Lease to acquire shared colors with.
+     * @return Eclipse text presentation.
+     */
+    public static TextPresentation createTextPresentation(java.awt.Color color, int length, SharedColors.Lease colors) {
         final TextPresentation presentation = new TextPresentation();
         final StyleRange styleRange = new StyleRange();
         styleRange.start = 0;
         styleRange.length = length;
-        styleRange.foreground = createColor(color, display);
+        styleRange.foreground = colors.get(color);
         presentation.addStyleRange(styleRange);
         return presentation;
     }
@@ -47,13 +62,27 @@ public final class StyleUtils {
      * @param styles
      *            Stream of Spoofax styles.
      * @param display
-     *            Display to create the Eclipse text presentation on.
+     *            Display to create the Eclipse text presentation on. Colors are shared and live as long as the display.
      * @return Eclipse text presentation.
      */
     public static <T> TextPresentation createTextPresentation(Iterable<IRegionStyle<T>> styles, Display display) {
+        return createTextPresentation(styles, SharedColors.of(display).displayLease());
+    }
+
+    /**
+     * Creates an Eclipse text presentation from given Spoofax styles.
+     * 
+     * @param styles
+     *            Stream of Spoofax styles.
+     * @param colors
+     *            Lease to acquire shared colors with.
+     * @return Eclipse text presentation.
+     */
+    public static <T> TextPresentation createTextPresentation(Iterable<IRegionStyle<T>> styles,
+        SharedColors.Lease colors) {
         final TextPresentation presentation = new TextPresentation();
         for(IRegionStyle<T> regionStyle : styles) {
-            final StyleRange styleRange = createStyleRange(regionStyle, display);
+            final StyleRange styleRange = createStyleRange(regionStyle, colors);
             presentation.addStyleRange(styleRange);
         }
         IRegion extent = presentation.getExtent();
@@ -63,7 +92,7 @@ public final class StyleUtils {
         final StyleRange defaultStyleRange = new StyleRange();
         defaultStyleRange.start = extent.getOffset();
         defaultStyleRange.length = extent.getLength();
-        defaultStyleRange.foreground = createColor(java.awt.Color.BLACK, display);
+        defaultStyleRange.foreground = colors.get(java.awt.Color.BLACK);
         presentation.setDefaultStyleRange(defaultStyleRange);
 
         return presentation;
@@ -75,21 +104,34 @@ public final class StyleUtils {
      * @param regionStyle
      *            Spoofax style region.
      * @param display
-     *            Display to create the Eclipse style range on.
+     *            Display to create the Eclipse style range on. Colors are shared and live as long as the display.
      * @return Eclipse style range.
      */
     public static StyleRange createStyleRange(IRegionStyle<?> regionStyle, Display display) {
+        return createStyleRange(regionStyle, SharedColors.of(display).displayLease());
+    }
+
+    /**
+     * Creates an Eclipse style range from given Spoofax style region.
+     * 
+     * @param regionStyle
+     *            Spoofax style region.
+     * @param colors
+     *            Lease to acquire shared colors with.
+     * @return Eclipse style range.
+     */
+    public static StyleRange createStyleRange(IRegionStyle<?> regionStyle, SharedColors.Lease colors) {
         final IStyle style = regionStyle.style();
         final ISourceRegion region = regionStyle.region();
 
         final StyleRange styleRange = new StyleRange();
         final java.awt.Color foreground = style.color();
         if(foreground != null) {
-            styleRange.foreground = createColor(foreground, display);
+            styleRange.foreground = colors.get(foreground);
         }
         final java.awt.Color background = style.backgroundColor();
         if(background != null) {
-            styleRange.background = createColor(background, display);
+            styleRange.background = colors.get(background);
         }
         if(style.bold()) {
             styleRange.fontStyle |= SWT.BOLD;
@@ -117,10 +159,10 @@ public final class StyleUtils {
      *            Java color.
      * @param display
      *            Display to create the color on.
-     * @return Eclipse color.
+     * @return Eclipse color, which must be disposed by the caller.
+     * @deprecated Allocates a new color on each call, use {@link SharedColors} instead.
      */
-    public static Color createColor(java.awt.Color color, Display display) {
-        // GTODO: this color object needs to be disposed manually!
+    @Deprecated public static Color createColor(java.awt.Color color, Display display) {
         return new Color(display, color.getRed(), color.getGreen(), color.getBlue());
     }
 
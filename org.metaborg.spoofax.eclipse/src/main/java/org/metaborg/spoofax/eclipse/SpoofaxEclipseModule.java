@@ -3,6 +3,7 @@ package org.metaborg.spoofax.eclipse;
 import org.apache.commons.vfs2.FileSystemManager;
 import org.metaborg.core.MetaborgModule;
 import org.metaborg.core.editor.IEditorRegistry;
+import org.metaborg.core.language.ILanguageCache;
 import org.metaborg.core.processing.ILanguageChangeProcessor;
 import org.metaborg.core.processing.IProcessor;
 import org.metaborg.core.project.IProjectService;
@@ -13,12 +14,15 @@ import org.metaborg.spoofax.core.unit.ISpoofaxAnalyzeUnit;
 import org.metaborg.spoofax.core.unit.ISpoofaxAnalyzeUnitUpdate;
 import org.metaborg.spoofax.core.unit.ISpoofaxParseUnit;
 import org.metaborg.spoofax.core.unit.ISpoofaxTransformUnit;
+import org.metaborg.spoofax.eclipse.editor.EditorUpdateDelays;
 import org.metaborg.spoofax.eclipse.editor.IEclipseEditorRegistry;
 import org.metaborg.spoofax.eclipse.editor.IEclipseEditorRegistryInternal;
 import org.metaborg.spoofax.eclipse.editor.SpoofaxEditorRegistry;
+import org.metaborg.spoofax.eclipse.editor.metrics.EditorMetrics;
 import org.metaborg.spoofax.eclipse.job.GlobalSchedulingRules;
 import org.metaborg.spoofax.eclipse.language.EclipseLanguageChangeProcessor;
 import org.metaborg.spoofax.eclipse.language.LanguageLoader;
+import org.metaborg.spoofax.eclipse.processing.ParseResultCache;
 import org.metaborg.spoofax.eclipse.processing.SpoofaxProcessor;
 import org.metaborg.spoofax.eclipse.project.EclipseProjectService;
 import org.metaborg.spoofax.eclipse.project.IEclipseProjectService;
@@ -29,6 +33,7 @@ import org.spoofax.interpreter.terms.IStrategoTerm;
 
 import com.google.inject.Singleton;
 import com.google.inject.TypeLiteral;
+import com.google.inject.multibindings.Multibinder;
 
 public class SpoofaxEclipseModule extends SpoofaxModule {
     public SpoofaxEclipseModule() {
@@ -47,6 +52,10 @@ public class SpoofaxEclipseModule extends SpoofaxModule {
         bind(EclipseLanguageChangeProcessor.class).in(Singleton.class);
         bind(LanguageLoader.class).in(Singleton.class);
         bind(SpoofaxPreferences.class).in(Singleton.class);
+        bind(EditorUpdateDelays.class).in(Singleton.class);
+        bind(EditorMetrics.class).in(Singleton.class);
+        bind(ParseResultCache.class).in(Singleton.class);
+        Multibinder.newSetBinder(binder(), ILanguageCache.class).addBinding().to(ParseResultCache.class);
     }
 
 
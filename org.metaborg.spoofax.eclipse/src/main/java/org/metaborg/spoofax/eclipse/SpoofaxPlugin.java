@@ -2,6 +2,7 @@ package org.metaborg.spoofax.eclipse;
 
 import java.net.URL;
 
+import org.eclipse.core.resources.ResourcesPlugin;
 import org.eclipse.jface.resource.ImageDescriptor;
 import org.eclipse.jface.resource.ImageRegistry;
 import org.eclipse.swt.graphics.Image;
@@ -13,6 +14,8 @@ import org.metaborg.spoofax.core.Spoofax;
 import org.metaborg.spoofax.eclipse.editor.IEclipseEditorRegistryInternal;
 import org.metaborg.spoofax.eclipse.logging.LoggingConfiguration;
 import org.metaborg.spoofax.eclipse.processing.SpoofaxProcessor;
+import org.metaborg.spoofax.eclipse.util.OverflowMessages;
+import org.metaborg.spoofax.eclipse.util.SharedColors;
 import org.osgi.framework.BundleContext;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -52,6 +55,8 @@ public class SpoofaxPlugin extends AbstractUIPlugin implements IStartup {
         injector.getInstance(IEclipseEditorRegistryInternal.class).register();
         // Discover language components and dialects from plugins at startup.
         injector.getInstance(SpoofaxProcessor.class).discoverLanguages();
+        // Remove overflowed messages of removed resources and closed or deleted projects.
+        OverflowMessages.register(ResourcesPlugin.getWorkspace());
 
         doneLoading = true;
     }
@@ -72,9 +77,11 @@ public class SpoofaxPlugin extends AbstractUIPlugin implements IStartup {
     @Override public void stop(BundleContext context) throws Exception {
         logger.debug("Stopping Spoofax plugin");
         doneLoading = false;
+        OverflowMessages.unregister(ResourcesPlugin.getWorkspace());
         injector = null;
         spoofax.close();
         spoofax = null;
+        SharedColors.disposeAll();
         logger = null;
         plugin = null;
         super.stop(context);
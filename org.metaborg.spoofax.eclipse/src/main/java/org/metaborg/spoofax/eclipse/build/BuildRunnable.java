@@ -1,5 +1,11 @@
 package org.metaborg.spoofax.eclipse.build;
 
+import java.util.Collection;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+
+import org.apache.commons.vfs2.FileName;
 import org.apache.commons.vfs2.FileObject;
 import org.eclipse.core.resources.IProject;
 import org.eclipse.core.resources.IResource;
@@ -13,6 +19,7 @@ import org.metaborg.core.build.IBuildOutput;
 import org.metaborg.core.build.IBuilder;
 import org.metaborg.core.messages.IMessage;
 import org.metaborg.core.syntax.IParseUnit;
+import org.metaborg.core.transform.ITransformOutput;
 import org.metaborg.core.transform.ITransformUnit;
 import org.metaborg.spoofax.eclipse.processing.Progress;
 import org.metaborg.spoofax.eclipse.project.EclipseProject;
@@ -25,6 +32,9 @@ import org.metaborg.util.log.LoggerUtils;
 import org.metaborg.util.task.ICancel;
 import org.metaborg.util.task.IProgress;
 
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+
 public class BuildRunnable<P extends IParseUnit, A extends IAnalyzeUnit, AU extends IAnalyzeUnitUpdate, T extends ITransformUnit<?>>
     implements IWorkspaceRunnable {
     private static final ILogger logger = LoggerUtils.logger(BuildRunnable.class);
@@ -34,17 +44,20 @@ public class BuildRunnable<P extends IParseUnit, A extends IAnalyzeUnit, AU exte
     private final BuildInput input;
     private final ICancel cancel;
     private final Ref<IBuildOutput<P, A, AU, T>> outputRef;
+    private final @Nullable Ref<Collection<IResource>> writtenRef;
 
     private @Nullable IProgress progress;
 
 
     public BuildRunnable(IEclipseResourceService resourceService, IBuilder<P, A, AU, T> builder, BuildInput input,
-        @Nullable IProgress progress, ICancel cancel, Ref<IBuildOutput<P, A, AU, T>> outputRef) {
+        @Nullable IProgress progress, ICancel cancel, Ref<IBuildOutput<P, A, AU, T>> outputRef,
+        @Nullable Ref<Collection<IResource>> writtenRef) {
         this.resourceService = resourceService;
         this.builder = builder;
         this.input = input;
         this.cancel = cancel;
         this.outputRef = outputRef;
+        this.writtenRef = writtenRef;
 
         this.progress = progress;
     }
@@ -63,97 +76,135 @@ public class BuildRunnable<P extends IParseUnit, A extends IAnalyzeUnit, AU exte
         }
 
         final IProject eclipseProject = ((EclipseProject) input.project).eclipseProject;
-        MarkerUtils.clearAll(eclipseProject);
+        final Set<FileName> included = output.includedResources();
+        // Group messages per resource first, such that each resource is checked and resolved once.
+        final Map<FileName, ResourceMessages> groups = Maps.newLinkedHashMap();
 
         for(FileObject resource : output.changedResources()) {
-            if(output.includedResources().contains(resource.getName())) {
+            if(included.contains(resource.getName())) {
                 // Don't clear markers for included resources.
                 continue;
             }
-
-            final IResource eclipseResource = resourceService.unresolve(resource);
-            if(eclipseResource == null) {
-                logger.debug("Cannot clear markers for {}, resource is not in the Eclipse workspace", resource);
-                continue;
-            }
-            MarkerUtils.clearAll(eclipseResource);
+            group(groups, resource).clearAll();
         }
 
         for(P result : output.parseResults()) {
-            if(output.includedResources().contains(result.source().getName())) {
+            if(included.contains(result.source().getName())) {
                 // Don't create markers for included resources.
                 continue;
             }
-
             for(IMessage message : result.messages()) {
                 final FileObject resource = message.source();
                 if(resource == null) {
                     continue;
                 }
-                final IResource eclipseResource = resourceService.unresolve(resource);
-                if(eclipseResource == null) {
-                    logger.debug("Cannot create marker for {}, resource is not in the Eclipse workspace", resource);
-                    continue;
-                }
-                MarkerUtils.createMarker(eclipseResource, message);
+                group(groups, resource).add(message);
             }
         }
 
         for(A result : output.analysisResults()) {
-            if(output.includedResources().contains(result.source().getName())) {
+            if(included.contains(result.source().getName())) {
                 // Don't create markers for included resources.
                 continue;
             }
-
             for(IMessage message : result.messages()) {
                 final FileObject resource = message.source();
-                if(output.removedResources().contains(resource.getName())) {
+                if(resource == null || output.removedResources().contains(resource.getName())) {
                     // Analysis results contain removed resources, don't create markers for removed
                     // resources.
                     continue;
                 }
-                final IResource eclipseResource = resourceService.unresolve(resource);
-                if(eclipseResource == null) {
-                    logger.debug("Cannot create marker for {}, resource is not in the Eclipse workspace", resource);
-                    continue;
-                }
-                MarkerUtils.createMarker(eclipseResource, message);
+                group(groups, resource).add(message);
             }
         }
 
         for(AU update : output.analysisUpdates()) {
             final FileObject resource = update.source();
-            if(output.includedResources().contains(resource.getName())) {
+            if(included.contains(resource.getName())) {
                 // Don't create markers for included resources.
                 continue;
             }
-            final IResource eclipseResource = resourceService.unresolve(resource);
-            if(eclipseResource == null) {
-                logger.debug("Cannot clear or create markers for {}, resource is not in the Eclipse workspace",
-                    resource);
-                continue;
-            }
-            MarkerUtils.clearAnalysis(eclipseResource);
+            final ResourceMessages group = group(groups, resource);
+            group.clearAnalysis();
             for(IMessage message : update.messages()) {
-                MarkerUtils.createMarker(eclipseResource, message);
+                group.add(message);
             }
         }
 
         for(IMessage message : output.extraMessages()) {
             final FileObject resource = message.source();
-            if(output.includedResources().contains(resource.getName())) {
+            if(resource == null || included.contains(resource.getName())) {
                 // Don't create markers for included resources.
                 continue;
             }
+            group(groups, resource).add(message);
+        }
 
-            final IResource eclipseResource = resourceService.unresolve(resource);
+        // Resolve all resources before writing any markers.
+        final Map<IResource, ResourceMessages> resolved = Maps.newLinkedHashMap();
+        for(ResourceMessages group : groups.values()) {
+            final IResource eclipseResource = resourceService.unresolve(group.resource);
             if(eclipseResource == null) {
-                logger.debug("Cannot create marker for {}, resource is not in the Eclipse workspace", resource);
+                logger.debug("Cannot clear or create markers for {}, resource is not in the Eclipse workspace",
+                    group.resource);
                 continue;
             }
-            MarkerUtils.createMarker(eclipseResource, message);
+            resolved.put(eclipseResource, group);
+        }
+
+        // Markers on the project itself are always cleared, reconcile them when the project also has messages.
+        if(!resolved.containsKey(eclipseProject)) {
+            MarkerUtils.clearAll(eclipseProject);
+        }
+        // Limit the number of markers per resource and for the whole project, to keep the workspace responsive when a
+        // build produces huge numbers of messages. Remaining messages are stored as overflowed messages.
+        int remainingMarkers = MarkerUtils.maxProjectMarkers;
+        for(Entry<IResource, ResourceMessages> entry : resolved.entrySet()) {
+            final IResource eclipseResource = entry.getKey();
+            final ResourceMessages group = entry.getValue();
+            if(eclipseResource.equals(eclipseProject)) {
+                group.clearAll();
+            }
+            final int maxMarkers = Math.min(MarkerUtils.maxFileMarkers, remainingMarkers);
+            remainingMarkers -= group.updateMarkers(eclipseResource, maxMarkers);
         }
 
+        // Written resources are only complete when the build succeeded and was not cancelled. Otherwise the reference
+        // stays unset, and the project is refreshed completely.
+        if(writtenRef != null && output.success() && !cancel.cancelled()) {
+            writtenRef.set(written(output));
+        }
         outputRef.set(output);
     }
+
+
+    /**
+     * @return Eclipse resources of the files written by transformations, which need to be refreshed after the build.
+     */
+    private Collection<IResource> written(IBuildOutput<P, A, AU, T> output) {
+        final Collection<IResource> written = Sets.newLinkedHashSet();
+        for(T result : output.transformResults()) {
+            for(ITransformOutput transformOutput : result.outputs()) {
+                final FileObject resource = transformOutput.output();
+                if(resource == null) {
+                    continue;
+                }
+                final IResource eclipseResource = resourceService.unresolve(resource);
+                if(eclipseResource != null) {
+                    written.add(eclipseResource);
+                }
+            }
+        }
+        return written;
+    }
+
+    private static ResourceMessages group(Map<FileName, ResourceMessages> groups, FileObject resource) {
+        final FileName name = resource.getName();
+        ResourceMessages group = groups.get(name);
+        if(group == null) {
+            group = new ResourceMessages(resource);
+            groups.put(name, group);
+        }
+        return group;
+    }
 }
@@ -0,0 +1,187 @@
+package org.metaborg.spoofax.eclipse.build;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.commons.vfs2.FileName;
+import org.eclipse.core.resources.IProject;
+import org.metaborg.core.build.BuildState;
+import org.metaborg.core.build.LanguageBuildState;
+import org.metaborg.core.language.ILanguageIdentifierService;
+import org.metaborg.core.language.ILanguageImpl;
+import org.metaborg.core.language.ILanguageService;
+import org.metaborg.core.language.LanguageIdentifier;
+import org.metaborg.core.resource.IResourceService;
+import org.metaborg.spoofax.eclipse.SpoofaxPlugin;
+import org.metaborg.spoofax.eclipse.util.Nullable;
+import org.metaborg.util.log.ILogger;
+import org.metaborg.util.log.LoggerUtils;
+
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Ordering;
+import com.google.common.collect.Sets;
+
+/**
+ * Stores the build state of the last completed build of a project in the working location of the project, such that
+ * the first build after a restart is incremental. The stored state starts with a stamp, consisting of a format version
+ * and the identifiers and versions of the active language implementations, followed by the source and include files of
+ * each language, keyed by language identifier. The stored state is only loaded if its stamp matches the current stamp,
+ * and its languages are resolved through the language service, since a build state is only valid for the languages it
+ * was built with.
+ */
+final class BuildStates {
+    private static final ILogger logger = LoggerUtils.logger(BuildStates.class);
+    private static final int formatVersion = 2;
+    private static final String fileName = "build.state";
+    private static final String formatPrefix = "format ";
+    private static final String languagePrefix = "language ";
+    private static final String sourcePrefix = "source ";
+    private static final String includePrefix = "include ";
+    private static final String stampEnd = "end";
+
+    private final IResourceService resourceService;
+    private final ILanguageIdentifierService languageIdentifierService;
+    private final ILanguageService languageService;
+
+
+    public BuildStates(IResourceService resourceService, ILanguageIdentifierService languageIdentifierService,
+        ILanguageService languageService) {
+        this.resourceService = resourceService;
+        this.languageIdentifierService = languageIdentifierService;
+        this.languageService = languageService;
+    }
+
+
+    /**
+     * @return Stamp of the current format version and active language implementations.
+     */
+    public List<String> stamp() {
+        final List<String> ids = Lists.newArrayList();
+        for(ILanguageImpl languageImpl : languageService.getAllImpls()) {
+            ids.add(languageImpl.id().toString());
+        }
+        final List<String> stamp = Lists.newArrayList(formatPrefix + formatVersion);
+        stamp.addAll(Ordering.natural().sortedCopy(ids));
+        stamp.add(stampEnd);
+        return stamp;
+    }
+
+    /**
+     * Loads the stored build state of given project.
+     *
+     * @return Stored build state, or null if there is no stored state, if it was stored with a different stamp, or if
+     *         it cannot be read.
+     */
+    public @Nullable BuildState load(IProject project, List<String> stamp) {
+        final File file = file(project);
+        if(file == null || !file.exists()) {
+            return null;
+        }
+        final List<String> lines;
+        try {
+            lines = Files.readAllLines(file.toPath(), StandardCharsets.UTF_8);
+        } catch(IOException e) {
+            logger.warn("Cannot read build state {}", e, file);
+            return null;
+        }
+        if(lines.size() < stamp.size() || !lines.subList(0, stamp.size()).equals(stamp)) {
+            logger.debug("Ignoring build state {}; languages changed since it was stored", file);
+            return null;
+        }
+
+        final BuildState state = new BuildState();
+        ILanguageImpl language = null;
+        Set<FileName> sources = null;
+        Set<FileName> includes = null;
+        for(String line : lines.subList(stamp.size(), lines.size())) {
+            if(line.startsWith(languagePrefix)) {
+                add(state, language, sources, includes);
+                language = language(line.substring(languagePrefix.length()));
+                if(language == null) {
+                    logger.debug("Ignoring build state {}; cannot resolve language of {}", file, line);
+                    return null;
+                }
+                sources = Sets.newHashSet();
+                includes = Sets.newHashSet();
+            } else if(line.startsWith(sourcePrefix) && sources != null) {
+                sources.add(resourceService.resolve(line.substring(sourcePrefix.length())).getName());
+            } else if(line.startsWith(includePrefix) && includes != null) {
+                includes.add(resourceService.resolve(line.substring(includePrefix.length())).getName());
+            } else {
+                logger.warn("Ignoring build state {}; malformed line {}", file, line);
+                return null;
+            }
+        }
+        add(state, language, sources, includes);
+        return state;
+    }
+
+    /**
+     * Stores given build state of given project, with given stamp.
+     */
+    public void store(IProject project, List<String> stamp, BuildState state) {
+        final File file = file(project);
+        if(file == null) {
+            return;
+        }
+        final List<String> lines = Lists.newArrayList(stamp);
+        for(ILanguageImpl language : languageService.getAllImpls()) {
+            final LanguageBuildState languageState = state.get(resourceService, languageIdentifierService, language);
+            if(Iterables.isEmpty(languageState.sourceFiles()) && Iterables.isEmpty(languageState.includeFiles())) {
+                continue;
+            }
+            lines.add(languagePrefix + language.id());
+            for(FileName source : languageState.sourceFiles()) {
+                lines.add(sourcePrefix + source.getURI());
+            }
+            for(FileName include : languageState.includeFiles()) {
+                lines.add(includePrefix + include.getURI());
+            }
+        }
+        try {
+            Files.write(file.toPath(), lines, StandardCharsets.UTF_8);
+        } catch(IOException e) {
+            logger.warn("Cannot write build state {}", e, file);
+        }
+    }
+
+    /**
+     * Deletes the stored build state of given project.
+     */
+    public static void delete(IProject project) {
+        final File file = file(project);
+        if(file != null && file.exists() && !file.delete()) {
+            logger.warn("Cannot delete build state {}", file);
+        }
+    }
+
+
+    private void add(BuildState state, @Nullable ILanguageImpl language, @Nullable Set<FileName> sources,
+        @Nullable Set<FileName> includes) {
+        if(language == null || sources == null || includes == null) {
+            return;
+        }
+        state.add(language, new LanguageBuildState(resourceService, languageIdentifierService, language, sources,
+            includes));
+    }
+
+    private @Nullable ILanguageImpl language(String id) {
+        try {
+            return languageService.getImpl(LanguageIdentifier.parse(id));
+        } catch(IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static @Nullable File file(IProject project) {
+        if(!project.isAccessible()) {
+            return null;
+        }
+        return project.getWorkingLocation(SpoofaxPlugin.id).append(fileName).toFile();
+    }
+}
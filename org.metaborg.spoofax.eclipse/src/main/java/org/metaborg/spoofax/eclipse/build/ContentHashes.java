@@ -0,0 +1,181 @@
+package org.metaborg.spoofax.eclipse.build;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.runtime.IPath;
+import org.metaborg.spoofax.eclipse.SpoofaxPlugin;
+import org.metaborg.spoofax.eclipse.util.Nullable;
+import org.metaborg.util.log.ILogger;
+import org.metaborg.util.log.LoggerUtils;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.google.common.hash.Hashing;
+
+/**
+ * Stores hashes of the contents of the files of a project, as they were when the files were last built, in the working
+ * location of the project. Eclipse reports a change for files whose timestamp changed but whose contents did not, for
+ * example after a version control checkout. Comparing the hash of a changed file with its stored hash allows dropping
+ * such changes before they are built.
+ *
+ * Hashes of changed files are pending until they are committed after a build completes, such that changes of a build
+ * that did not complete are not dropped by the next build.
+ */
+final class ContentHashes {
+    private static final ILogger logger = LoggerUtils.logger(ContentHashes.class);
+    private static final String fileName = "content.hashes";
+    private static final String separator = " ";
+
+    private final IProject project;
+    private final Map<String, String> hashes;
+    private final Map<String, String> pendingHashes = Maps.newHashMap();
+    private final Set<String> pendingRemovals = Sets.newHashSet();
+
+
+    private ContentHashes(IProject project, Map<String, String> hashes) {
+        this.project = project;
+        this.hashes = hashes;
+    }
+
+
+    /**
+     * Loads the stored hashes of given project.
+     *
+     * @return Stored hashes, or no hashes if there are no stored hashes, or if they cannot be read.
+     */
+    public static ContentHashes load(IProject project) {
+        final Map<String, String> hashes = Maps.newHashMap();
+        final File file = file(project);
+        if(file != null && file.exists()) {
+            try {
+                for(String line : Files.readAllLines(file.toPath(), StandardCharsets.UTF_8)) {
+                    final int index = line.indexOf(separator);
+                    if(index > 0) {
+                        hashes.put(line.substring(index + 1), line.substring(0, index));
+                    }
+                }
+            } catch(IOException e) {
+                logger.warn("Cannot read content hashes {}", e, file);
+                hashes.clear();
+            }
+        }
+        return new ContentHashes(project, hashes);
+    }
+
+    /**
+     * Deletes the stored hashes of given project.
+     */
+    public static void delete(IProject project) {
+        final File file = file(project);
+        if(file != null && file.exists() && !file.delete()) {
+            logger.warn("Cannot delete content hashes {}", file);
+        }
+    }
+
+
+    /**
+     * Checks if the contents of given changed file differ from its stored hash, and records its new hash as pending.
+     *
+     * @return True if the contents of the file changed, or if it is unknown whether they changed. False if the contents
+     *         are equal to the contents of the last build.
+     */
+    public boolean changed(IResource resource) {
+        final String path = resource.getProjectRelativePath().toString();
+        final String hash = hash(resource);
+        if(hash == null) {
+            pendingRemovals.add(path);
+            pendingHashes.remove(path);
+            return true;
+        }
+        final String stored = hashes.get(path);
+        pendingHashes.put(path, hash);
+        pendingRemovals.remove(path);
+        return !hash.equals(stored);
+    }
+
+    /**
+     * Records the removal of given file as pending.
+     */
+    public void removed(IResource resource) {
+        final String path = resource.getProjectRelativePath().toString();
+        pendingRemovals.add(path);
+        pendingHashes.remove(path);
+    }
+
+    /**
+     * Applies pending hashes and removals, and stores the hashes.
+     */
+    public void commit() {
+        if(pendingHashes.isEmpty() && pendingRemovals.isEmpty()) {
+            return;
+        }
+        hashes.keySet().removeAll(pendingRemovals);
+        hashes.putAll(pendingHashes);
+        discard();
+
+        final File file = file(project);
+        if(file == null) {
+            return;
+        }
+        final List<String> lines = Lists.newArrayListWithCapacity(hashes.size());
+        for(Entry<String, String> entry : hashes.entrySet()) {
+            lines.add(entry.getValue() + separator + entry.getKey());
+        }
+        try {
+            Files.write(file.toPath(), lines, StandardCharsets.UTF_8);
+        } catch(IOException e) {
+            logger.warn("Cannot write content hashes {}", e, file);
+        }
+    }
+
+    /**
+     * Removes all hashes, including pending hashes and removals, and deletes the stored hashes. Used before full
+     * builds, which build all files regardless of their hashes, and record the hashes of the source files they build.
+     */
+    public void reset() {
+        hashes.clear();
+        discard();
+        delete(project);
+    }
+
+    /**
+     * Discards pending hashes and removals.
+     */
+    public void discard() {
+        pendingHashes.clear();
+        pendingRemovals.clear();
+    }
+
+
+    private static @Nullable String hash(IResource resource) {
+        final IPath location = resource.getLocation();
+        if(location == null) {
+            // Resource is not stored in the local file system.
+            return null;
+        }
+        try {
+            final byte[] bytes = Files.readAllBytes(location.toFile().toPath());
+            return Hashing.sha1().hashBytes(bytes).toString();
+        } catch(IOException e) {
+            logger.debug("Cannot hash contents of {}", e, resource);
+            return null;
+        }
+    }
+
+    private static @Nullable File file(IProject project) {
+        if(!project.isAccessible()) {
+            return null;
+        }
+        return project.getWorkingLocation(SpoofaxPlugin.id).append(fileName).toFile();
+    }
+}
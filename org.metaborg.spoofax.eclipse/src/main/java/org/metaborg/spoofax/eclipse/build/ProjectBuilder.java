@@ -1,15 +1,29 @@
 package org.metaborg.spoofax.eclipse.build;
 
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import org.apache.commons.vfs2.FileObject;
+import org.apache.commons.vfs2.FileSelectInfo;
+import org.apache.commons.vfs2.FileSelector;
 import org.apache.commons.vfs2.FileSystemException;
+import org.eclipse.core.resources.IContainer;
+import org.eclipse.core.resources.IProjectDescription;
+import org.eclipse.core.resources.IResource;
 import org.eclipse.core.resources.IResourceDelta;
 import org.eclipse.core.resources.IResourceDeltaVisitor;
+import org.eclipse.core.resources.IWorkspace;
 import org.eclipse.core.resources.IncrementalProjectBuilder;
+import org.eclipse.core.resources.WorkspaceJob;
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.QualifiedName;
+import org.eclipse.core.runtime.jobs.ISchedulingRule;
+import org.eclipse.core.runtime.jobs.MultiRule;
 import org.metaborg.core.MetaborgException;
 import org.metaborg.core.action.CompileGoal;
 import org.metaborg.core.analysis.IAnalyzeUnit;
@@ -23,6 +37,9 @@ import org.metaborg.core.build.IBuildOutput;
 import org.metaborg.core.build.dependency.IDependencyService;
 import org.metaborg.core.build.dependency.MissingDependencies;
 import org.metaborg.core.build.paths.ILanguagePathService;
+import org.metaborg.core.language.ILanguageComponent;
+import org.metaborg.core.language.ILanguageIdentifierService;
+import org.metaborg.core.language.ILanguageService;
 import org.metaborg.core.processing.IProcessorRunner;
 import org.metaborg.core.processing.ITask;
 import org.metaborg.core.project.IProject;
@@ -36,14 +53,20 @@ import org.metaborg.spoofax.core.Spoofax;
 import org.metaborg.spoofax.core.resource.SpoofaxIgnoresSelector;
 import org.metaborg.spoofax.eclipse.SpoofaxPlugin;
 import org.metaborg.spoofax.eclipse.SpoofaxPreferences;
+import org.metaborg.spoofax.eclipse.job.GlobalSchedulingRules;
 import org.metaborg.spoofax.eclipse.processing.Monitor;
 import org.metaborg.spoofax.eclipse.resource.IEclipseResourceService;
 import org.metaborg.spoofax.eclipse.util.Nullable;
+import org.metaborg.spoofax.eclipse.util.StatusUtils;
 import org.metaborg.util.log.ILogger;
 import org.metaborg.util.log.LoggerUtils;
 
+import com.google.common.base.Joiner;
+import com.google.common.base.Splitter;
+import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
 import com.google.inject.Injector;
 
 public abstract class ProjectBuilder<P extends IParseUnit, A extends IAnalyzeUnit, AU extends IAnalyzeUnitUpdate, T extends ITransformUnit<?>>
@@ -52,15 +75,26 @@ public abstract class ProjectBuilder<P extends IParseUnit, A extends IAnalyzeUni
 
     public static final String id = SpoofaxPlugin.id + ".builder";
 
+    private static final QualifiedName referencesProperty = new QualifiedName(SpoofaxPlugin.id, "references");
+    private static final Joiner referenceJoiner = Joiner.on('/');
+    private static final Splitter referenceSplitter = Splitter.on('/').omitEmptyStrings();
+    private static final int contentFlags =
+        IResourceDelta.CONTENT | IResourceDelta.REPLACED | IResourceDelta.ENCODING | IResourceDelta.TYPE;
+
     private final IEclipseResourceService resourceService;
     private final ILanguagePathService languagePathService;
     private final IProjectService projectService;
     private final IDependencyService dependencyService;
+    private final ILanguageService languageService;
+    private final ILanguageIdentifierService languageIdentifierService;
     private final IProcessorRunner<P, A, AU, T> processorRunner;
+    private final BuildStates buildStates;
 
+    private final GlobalSchedulingRules globalRules;
     private final SpoofaxPreferences preferences;
 
-    private final Map<org.eclipse.core.resources.IProject, BuildState> states = Maps.newHashMap();
+    private final Map<org.eclipse.core.resources.IProject, BuildState> states = Maps.newConcurrentMap();
+    private final Map<org.eclipse.core.resources.IProject, ContentHashes> hashes = Maps.newConcurrentMap();
 
 
     public ProjectBuilder(IProcessorRunner<P, A, AU, T> processorRunner) {
@@ -73,7 +107,11 @@ public abstract class ProjectBuilder<P extends IParseUnit, A extends IAnalyzeUni
         this.languagePathService = spoofax.languagePathService;
         this.projectService = spoofax.projectService;
         this.dependencyService = spoofax.dependencyService;
+        this.languageService = spoofax.languageService;
+        this.languageIdentifierService = spoofax.languageIdentifierService;
+        this.buildStates = new BuildStates(resourceService, languageIdentifierService, languageService);
 
+        this.globalRules = injector.getInstance(GlobalSchedulingRules.class);
         this.preferences = injector.getInstance(SpoofaxPreferences.class);
     }
 
@@ -105,16 +143,30 @@ public abstract class ProjectBuilder<P extends IParseUnit, A extends IAnalyzeUni
             return null;
         }
 
+        final List<String> stamp = buildStates.stamp();
+        final ContentHashes contentHashes = contentHashes(eclipseProject);
         try {
             final ITask<? extends IBuildOutput<P, A, AU, T>> task;
             if(kind == FULL_BUILD) {
-                task = fullBuild(project, monitor);
+                contentHashes.reset();
+                task = fullBuild(project, contentHashes, monitor);
             } else {
                 final IResourceDelta delta = getDelta(eclipseProject);
+                BuildState state = states.get(eclipseProject);
+                if(state == null && delta != null) {
+                    // The in-memory build state is lost after a restart, load the state stored by the previous build.
+                    state = buildStates.load(eclipseProject, stamp);
+                }
                 if(delta == null) {
-                    task = fullBuild(project, monitor);
+                    contentHashes.reset();
+                    task = fullBuild(project, contentHashes, monitor);
+                } else if(state == null) {
+                    logger.debug("Building {} fully; no build state of a previous build with the same languages",
+                        project);
+                    contentHashes.reset();
+                    task = fullBuild(project, contentHashes, monitor);
                 } else {
-                    task = incrBuild(project, states.get(eclipseProject), delta, monitor);
+                    task = incrBuild(project, state, delta, contentHashes, monitor);
                 }
             }
 
@@ -125,6 +177,8 @@ public abstract class ProjectBuilder<P extends IParseUnit, A extends IAnalyzeUni
                 final IBuildOutput<P, A, AU, T> output = task.result();
                 if(output != null) {
                     states.put(eclipseProject, output.state());
+                    buildStates.store(eclipseProject, stamp, output.state());
+                    contentHashes.commit();
                 }
             }
         } catch(InterruptedException e) {
@@ -132,18 +186,125 @@ public abstract class ProjectBuilder<P extends IParseUnit, A extends IAnalyzeUni
         } catch(MetaborgException | FileSystemException e) {
             cancel(monitor);
             logger.error("Cannot build project {}; build failed unexpectedly", e, project);
+        } finally {
+            // Changes of a build that did not complete are built again by the next build.
+            contentHashes.discard();
+        }
+
+        // Declare projects that provide language or library dependencies, such that this project receives their
+        // deltas, and is built after them.
+        return dependencies(eclipseProject, project);
+    }
+
+    /**
+     * Builds are scheduled with a rule on the project being built and the Stratego lock, instead of the workspace root,
+     * such that builds do not lock the resources of other projects. Resources outside of the project that are written
+     * by the build are refreshed in a separate job after the build.
+     *
+     * Spoofax builds are NOT run concurrently, regardless of the maximum number of concurrent builds of the workspace.
+     * Stratego calls are not thread-safe and almost every step of a build does Stratego calls, so the Stratego lock
+     * must be held for the entire build. It cannot be taken for only part of the build, since the job manager does not
+     * allow acquiring a rule that is not contained in the rule of the builder. The project references declared by
+     * {@link #dependencies} only order builds of dependent projects.
+     */
+    @Override public ISchedulingRule getRule(int kind, Map<String, String> args) {
+        return new MultiRule(new ISchedulingRule[] { getProject(), globalRules.strategoLock() });
+    }
+
+    private org.eclipse.core.resources.IProject[] dependencies(org.eclipse.core.resources.IProject eclipseProject,
+        IProject project) {
+        final Set<org.eclipse.core.resources.IProject> dependencies = Sets.newLinkedHashSet();
+        try {
+            for(ILanguageComponent component : Iterables.concat(dependencyService.compileDeps(project),
+                dependencyService.sourceDeps(project))) {
+                final IResource resource = resourceService.unresolve(component.location());
+                if(resource == null) {
+                    // Component is not in the workspace, for example a language from a plugin.
+                    continue;
+                }
+                final org.eclipse.core.resources.IProject dependency = resource.getProject();
+                if(dependency != null && !dependency.equals(eclipseProject) && dependency.isAccessible()) {
+                    dependencies.add(dependency);
+                }
+            }
+        } catch(MetaborgException e) {
+            logger.error("Cannot declare dependencies of project {}; retrieving dependencies failed", e, project);
+            return null;
+        }
+        updateReferences(eclipseProject, dependencies);
+        return dependencies.toArray(new org.eclipse.core.resources.IProject[dependencies.size()]);
+    }
+
+    /**
+     * Replaces the dynamic project references that were added by this builder with given dependencies, which Eclipse
+     * uses to compute the build order. The names of the added references are stored in a persistent property of the
+     * project, such that references that were set by others are kept, and dependencies that were removed are removed
+     * from the references again. Changing the project description is not allowed during a build, so it is done in a
+     * separate job.
+     */
+    private void updateReferences(final org.eclipse.core.resources.IProject eclipseProject,
+        Set<org.eclipse.core.resources.IProject> dependencies) {
+        final Set<org.eclipse.core.resources.IProject> existing;
+        final Set<String> added;
+        try {
+            existing = Sets.newLinkedHashSet(Arrays.asList(eclipseProject.getDescription().getDynamicReferences()));
+            added = referenceNames(eclipseProject.getPersistentProperty(referencesProperty));
+        } catch(CoreException e) {
+            logger.error("Cannot update project references of {}; reading project description failed", e,
+                eclipseProject);
+            return;
+        }
+        final Set<org.eclipse.core.resources.IProject> references = Sets.newLinkedHashSet();
+        for(org.eclipse.core.resources.IProject reference : existing) {
+            if(!added.contains(reference.getName())) {
+                references.add(reference);
+            }
+        }
+        final Set<String> newAdded = Sets.newLinkedHashSet();
+        for(org.eclipse.core.resources.IProject dependency : dependencies) {
+            if(references.add(dependency) || added.contains(dependency.getName())) {
+                newAdded.add(dependency.getName());
+            }
         }
+        if(references.equals(existing) && newAdded.equals(added)) {
+            return;
+        }
+
+        final IWorkspace workspace = eclipseProject.getWorkspace();
+        final WorkspaceJob job = new WorkspaceJob("Updating project references of " + eclipseProject.getName()) {
+            @Override public IStatus runInWorkspace(IProgressMonitor monitor) throws CoreException {
+                if(!eclipseProject.isAccessible()) {
+                    return StatusUtils.success();
+                }
+                final IProjectDescription description = eclipseProject.getDescription();
+                description.setDynamicReferences(
+                    references.toArray(new org.eclipse.core.resources.IProject[references.size()]));
+                eclipseProject.setDescription(description, IResource.KEEP_HISTORY | IResource.AVOID_NATURE_CONFIG,
+                    monitor);
+                eclipseProject.setPersistentProperty(referencesProperty,
+                    newAdded.isEmpty() ? null : referenceJoiner.join(newAdded));
+                return StatusUtils.success();
+            }
+        };
+        job.setRule(workspace.getRuleFactory().modifyRule(eclipseProject));
+        job.setSystem(true);
+        job.schedule();
+    }
 
-        // Return value is used to declare dependencies on other projects, but right now this is not possible in
-        // Spoofax, so always return null.
-        return null;
+    private static Set<String> referenceNames(@Nullable String property) {
+        if(property == null) {
+            return Sets.newHashSet();
+        }
+        return Sets.newHashSet(referenceSplitter.split(property));
     }
 
-    private @Nullable ITask<? extends IBuildOutput<P, A, AU, T>> fullBuild(IProject project, IProgressMonitor monitor)
+    private @Nullable ITask<? extends IBuildOutput<P, A, AU, T>> fullBuild(IProject project,
+        ContentHashes contentHashes, IProgressMonitor monitor)
         throws InterruptedException, FileSystemException, MetaborgException {
         final Iterable<FileObject> resources = ResourceUtils.find(project.location());
         final Iterable<ResourceChange> creations = ResourceUtils.toChanges(resources, ResourceChangeKind.Create);
         processorRunner.updateDialects(project.location(), creations).schedule().block();
+        seedHashes(project, resources, contentHashes);
 
         final BuildInputBuilder inputBuilder = new BuildInputBuilder(project);
         // @formatter:off
@@ -160,11 +321,25 @@ public abstract class ProjectBuilder<P extends IParseUnit, A extends IAnalyzeUni
         return processorRunner.build(input, spxMonitor, spxMonitor);
     }
 
-    private ITask<? extends IBuildOutput<P, A, AU, T>> incrBuild(IProject project, @Nullable BuildState state,
-        IResourceDelta delta, IProgressMonitor monitor) throws CoreException, InterruptedException, MetaborgException {
+    private ITask<? extends IBuildOutput<P, A, AU, T>> incrBuild(final IProject project, BuildState state,
+        IResourceDelta delta, final ContentHashes contentHashes, IProgressMonitor monitor)
+        throws CoreException, InterruptedException, MetaborgException {
         final Collection<ResourceChange> changes = Lists.newLinkedList();
+        final FileSelector selector = new SpoofaxIgnoresSelector();
         delta.accept(new IResourceDeltaVisitor() {
             @Override public boolean visit(IResourceDelta innerDelta) throws CoreException {
+                final IResource resource = innerDelta.getResource();
+                if(ignored(project, resource, selector)) {
+                    // Do not visit ignored subtrees, such as build output and version control folders, at all.
+                    return false;
+                }
+                if(resource.getType() != IResource.FILE) {
+                    // Only files are built; added and removed folders report deltas for all of their files.
+                    return true;
+                }
+                if(!contentChanged(innerDelta, contentHashes)) {
+                    return true;
+                }
                 final ResourceChange change = resourceService.resolve(innerDelta);
                 if(change != null) {
                     changes.add(change);
@@ -191,6 +366,120 @@ public abstract class ProjectBuilder<P extends IParseUnit, A extends IAnalyzeUni
         return processorRunner.build(input, spxMonitor, spxMonitor);
     }
 
+    /**
+     * Records the content hashes of the source files that a full build builds as pending, such that they are stored
+     * when the build completes, and the next incremental builds can drop changes that do not change the contents of
+     * files. Only files that an active language of the project identifies are hashed, other files are hashed when they
+     * are first changed.
+     */
+    private void seedHashes(IProject project, Iterable<FileObject> resources, ContentHashes contentHashes) {
+        final FileSelector selector = new SpoofaxIgnoresSelector();
+        final Map<IResource, Boolean> ignoredContainers = Maps.newHashMap();
+        for(FileObject file : resources) {
+            final IResource resource = resourceService.unresolve(file);
+            if(resource == null || resource.getType() != IResource.FILE || ignored(project, resource, selector)
+                || ignoredContainer(project, resource.getParent(), selector, ignoredContainers)
+                || languageIdentifierService.identifyToResource(file, project) == null) {
+                continue;
+            }
+            contentHashes.changed(resource);
+        }
+    }
+
+    /**
+     * @return True if given container or one of its ancestors is {@link #ignored}, false otherwise. Caches the result
+     *         for all visited containers in given map.
+     */
+    private boolean ignoredContainer(IProject project, IContainer container, FileSelector selector,
+        Map<IResource, Boolean> ignoredContainers) {
+        final Boolean cached = ignoredContainers.get(container);
+        if(cached != null) {
+            return cached;
+        }
+        final boolean ignored;
+        if(container.getType() == IResource.PROJECT || container.getType() == IResource.ROOT) {
+            ignored = false;
+        } else {
+            ignored = ignored(project, container, selector)
+                || ignoredContainer(project, container.getParent(), selector, ignoredContainers);
+        }
+        ignoredContainers.put(container, ignored);
+        return ignored;
+    }
+
+    /**
+     * @return False if given file delta is a modification that does not change the contents of the file, such as a
+     *         marker change or a timestamp-only change after a checkout, true otherwise. Records the content hash of
+     *         added and changed files.
+     */
+    private boolean contentChanged(IResourceDelta delta, ContentHashes contentHashes) {
+        final IResource resource = delta.getResource();
+        switch(delta.getKind()) {
+            case IResourceDelta.ADDED:
+                contentHashes.changed(resource);
+                return true;
+            case IResourceDelta.REMOVED:
+                contentHashes.removed(resource);
+                return true;
+            case IResourceDelta.CHANGED:
+                if((delta.getFlags() & contentFlags) == 0) {
+                    return false;
+                }
+                return contentHashes.changed(resource);
+            default:
+                return true;
+        }
+    }
+
+    private ContentHashes contentHashes(org.eclipse.core.resources.IProject eclipseProject) {
+        ContentHashes contentHashes = hashes.get(eclipseProject);
+        if(contentHashes == null) {
+            contentHashes = ContentHashes.load(eclipseProject);
+            hashes.put(eclipseProject, contentHashes);
+        }
+        return contentHashes;
+    }
+
+    /**
+     * @return True if given resource is derived, private to the team provider, or ignored by given selector, false
+     *         otherwise. Resources of removed deltas do not exist anymore and are never derived nor team private, but
+     *         are still ignored by the selector.
+     */
+    private boolean ignored(IProject project, IResource resource, FileSelector selector) {
+        if(resource.getType() == IResource.PROJECT) {
+            return false;
+        }
+        if(resource.isDerived() || resource.isTeamPrivateMember()) {
+            return true;
+        }
+        if(resource.getType() == IResource.FILE) {
+            // Ignored files are filtered by the build input, only prune ignored folders here.
+            return false;
+        }
+        final FileObject location = project.location();
+        final FileObject file = resourceService.resolve(resource);
+        final int depth = resource.getProjectRelativePath().segmentCount();
+        final FileSelectInfo info = new FileSelectInfo() {
+            @Override public FileObject getBaseFolder() {
+                return location;
+            }
+
+            @Override public FileObject getFile() {
+                return file;
+            }
+
+            @Override public int getDepth() {
+                return depth;
+            }
+        };
+        try {
+            return !selector.traverseDescendents(info);
+        } catch(Exception e) {
+            logger.warn("Cannot determine if {} is ignored, visiting it", e, resource);
+            return false;
+        }
+    }
+
     private void cancel(IProgressMonitor monitor) {
         rememberLastBuiltState();
         monitor.setCanceled(true);
@@ -217,6 +506,9 @@ public abstract class ProjectBuilder<P extends IParseUnit, A extends IAnalyzeUni
         } finally {
             forgetLastBuiltState();
             states.remove(eclipseProject);
+            hashes.remove(eclipseProject);
+            BuildStates.delete(eclipseProject);
+            ContentHashes.delete(eclipseProject);
         }
     }
 
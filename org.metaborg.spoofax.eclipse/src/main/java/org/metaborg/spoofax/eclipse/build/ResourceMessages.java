@@ -0,0 +1,89 @@
+package org.metaborg.spoofax.eclipse.build;
+
+import java.util.Iterator;
+import java.util.List;
+
+import org.apache.commons.vfs2.FileObject;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.runtime.CoreException;
+import org.metaborg.core.messages.IMessage;
+import org.metaborg.core.messages.MessageType;
+import org.metaborg.spoofax.eclipse.util.MarkerUtils;
+
+import com.google.common.collect.Lists;
+
+/**
+ * Messages of a build for a single resource, together with which markers of the resource must be cleared. Collecting
+ * messages per resource allows resolving the resource once, and writing its markers in a single pass.
+ */
+class ResourceMessages {
+    public final FileObject resource;
+
+    private final List<IMessage> messages = Lists.newArrayList();
+    private boolean clearAll;
+    private boolean clearAnalysis;
+
+
+    public ResourceMessages(FileObject resource) {
+        this.resource = resource;
+    }
+
+
+    /**
+     * Clears all markers of the resource before creating markers for the messages.
+     */
+    public void clearAll() {
+        clearAll = true;
+    }
+
+    /**
+     * Clears analysis markers of the resource, including markers for analysis messages that were added before.
+     */
+    public void clearAnalysis() {
+        clearAnalysis = true;
+        for(Iterator<IMessage> iter = messages.iterator(); iter.hasNext();) {
+            if(iter.next().type() == MessageType.ANALYSIS) {
+                iter.remove();
+            }
+        }
+    }
+
+    public void add(IMessage message) {
+        messages.add(message);
+    }
+
+
+    /**
+     * Updates the markers of given resource. Markers that are cleared and recreated with the same attributes are kept
+     * as is, such that only markers that differ generate marker changes.
+     *
+     * @param eclipseResource
+     *            Eclipse resource that the resource resolves to.
+     * @param maxMarkers
+     *            Maximum number of messages to create markers for, remaining messages are stored as overflowed
+     *            messages.
+     * @return Number of messages that markers were created for.
+     * @throws CoreException
+     *             When updating markers fails.
+     */
+    public int updateMarkers(IResource eclipseResource, int maxMarkers) throws CoreException {
+        if(clearAll) {
+            return MarkerUtils.reconcileAllMarkers(eclipseResource, messages, maxMarkers);
+        }
+        if(clearAnalysis) {
+            final List<IMessage> analysisMessages = Lists.newArrayList();
+            final List<IMessage> otherMessages = Lists.newArrayList();
+            for(IMessage message : messages) {
+                if(message.type() == MessageType.ANALYSIS) {
+                    analysisMessages.add(message);
+                } else {
+                    otherMessages.add(message);
+                }
+            }
+            final int created =
+                MarkerUtils.reconcileMarkers(eclipseResource, MessageType.ANALYSIS, analysisMessages, maxMarkers);
+            return created + MarkerUtils.createMarkers(eclipseResource, otherMessages, maxMarkers - created);
+        }
+        return MarkerUtils.createMarkers(eclipseResource, messages, maxMarkers);
+    }
+}
@@ -0,0 +1,28 @@
+package org.metaborg.spoofax.eclipse.editor;
+
+/**
+ * Lower and upper bound on a delay that is chosen by {@link EditorUpdateDelays}.
+ */
+public class DelayBounds {
+    public final long minMs;
+    public final long maxMs;
+
+
+    public DelayBounds(long minMs, long maxMs) {
+        this.minMs = Math.max(0, minMs);
+        this.maxMs = Math.max(this.minMs, maxMs);
+    }
+
+
+    /**
+     * @return Given delay, clamped to these bounds.
+     */
+    public long clamp(long delayMs) {
+        return Math.max(minMs, Math.min(maxMs, delayMs));
+    }
+
+
+    @Override public String toString() {
+        return "[" + minMs + "ms, " + maxMs + "ms]";
+    }
+}
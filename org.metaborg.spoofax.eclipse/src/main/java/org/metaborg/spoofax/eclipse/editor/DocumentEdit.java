@@ -0,0 +1,63 @@
+package org.metaborg.spoofax.eclipse.editor;
+
+import org.eclipse.jface.text.DocumentEvent;
+
+/**
+ * Region of a document that was changed by one or more edits. The offset is the same in the text before and after the
+ * edits. The removed length is relative to the text before the edits, the inserted length is relative to the text after
+ * the edits.
+ */
+public class DocumentEdit {
+    public final int offset;
+    public final int removedLength;
+    public final int insertedLength;
+
+
+    public DocumentEdit(int offset, int removedLength, int insertedLength) {
+        this.offset = offset;
+        this.removedLength = removedLength;
+        this.insertedLength = insertedLength;
+    }
+
+    /**
+     * Creates an edit from given document event.
+     *
+     * @param event
+     *            Document event to create the edit from.
+     * @return Edit for given event.
+     */
+    public static DocumentEdit of(DocumentEvent event) {
+        final String text = event.getText();
+        return new DocumentEdit(event.getOffset(), event.getLength(), text == null ? 0 : text.length());
+    }
+
+
+    /**
+     * Merges this edit with given edit, which was made after this edit, into a single edit that covers both.
+     *
+     * @param next
+     *            Edit that was made after this edit.
+     * @return Merged edit.
+     */
+    public DocumentEdit merge(DocumentEdit next) {
+        final int start = Math.min(offset, next.offset);
+        // End of the changed region, in the text between this and the next edit.
+        final int end = Math.max(offset + insertedLength, next.offset + next.removedLength);
+        final int removed = end - insertedLength + removedLength - start;
+        final int inserted = end - next.removedLength + next.insertedLength - start;
+        return new DocumentEdit(start, removed, inserted);
+    }
+
+    /**
+     * @return Difference in text length caused by this edit.
+     */
+    public int delta() {
+        return insertedLength - removedLength;
+    }
+
+
+    @Override public String toString() {
+        return "DocumentEdit[offset = " + offset + ", removed = " + removedLength + ", inserted = " + insertedLength
+            + "]";
+    }
+}
@@ -0,0 +1,280 @@
+package org.metaborg.spoofax.eclipse.editor;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+
+import org.apache.commons.vfs2.FileName;
+import org.apache.commons.vfs2.FileObject;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.IWorkspace;
+import org.eclipse.core.resources.IWorkspaceRunnable;
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.core.runtime.SubMonitor;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.ui.IEditorInput;
+import org.metaborg.core.MetaborgException;
+import org.metaborg.core.MetaborgRuntimeException;
+import org.metaborg.core.analysis.AnalysisException;
+import org.metaborg.core.analysis.IAnalysisService;
+import org.metaborg.core.analysis.IAnalyzeResult;
+import org.metaborg.core.analysis.IAnalyzeUnit;
+import org.metaborg.core.analysis.IAnalyzeUnitUpdate;
+import org.metaborg.core.context.IContext;
+import org.metaborg.core.context.IContextService;
+import org.metaborg.core.language.ILanguageImpl;
+import org.metaborg.core.messages.IMessage;
+import org.metaborg.core.messages.MessageFactory;
+import org.metaborg.core.messages.MessageType;
+import org.metaborg.core.processing.analyze.IAnalysisResultUpdater;
+import org.metaborg.core.syntax.IParseUnit;
+import org.metaborg.spoofax.eclipse.editor.metrics.EditorMetrics;
+import org.metaborg.spoofax.eclipse.editor.metrics.EditorPhase;
+import org.metaborg.spoofax.eclipse.editor.metrics.UpdateTimings;
+import org.metaborg.spoofax.eclipse.job.CancellationWatchdog;
+import org.metaborg.spoofax.eclipse.job.CoalescingJob;
+import org.metaborg.spoofax.eclipse.processing.Monitor;
+import org.metaborg.spoofax.eclipse.resource.IEclipseResourceService;
+import org.metaborg.spoofax.eclipse.util.MarkerUtils;
+import org.metaborg.spoofax.eclipse.util.StatusUtils;
+import org.metaborg.util.concurrent.IClosableLock;
+import org.metaborg.util.iterators.Iterables2;
+import org.metaborg.util.log.ILogger;
+import org.metaborg.util.log.LoggerUtils;
+
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+
+/**
+ * Editor update stage that analyzes parse results handed off by the {@link EditorUpdateJob}, and processes analysis
+ * messages. Scheduled with the project and Stratego rules, separately from parsing and styling.
+ */
+public class EditorAnalysisJob<P extends IParseUnit, A extends IAnalyzeUnit, AU extends IAnalyzeUnitUpdate>
+    extends CoalescingJob<EditorAnalysisRequest<P>> {
+    private static final ILogger logger = LoggerUtils.logger(EditorAnalysisJob.class);
+    private static final long interruptTimeMillis = 5000;
+    private static final long killTimeMillis = 30000;
+
+    private final IEclipseResourceService resourceService;
+    private final IContextService contextService;
+    private final IAnalysisService<P, A, AU> analyzer;
+    private final IAnalysisResultUpdater<P, A> analysisResultProcessor;
+    private final EditorUpdateDelays delays;
+    private final EditorMetrics metrics;
+
+    private final IEclipseEditor<?> editor;
+    private final IEditorInput input;
+    private final IResource eclipseResource;
+    private final FileObject resource;
+
+    private final CancellationWatchdog watchdog;
+
+
+    public EditorAnalysisJob(IEclipseResourceService resourceService, IContextService contextService,
+        IAnalysisService<P, A, AU> analyzer, IAnalysisResultUpdater<P, A> analysisResultProcessor,
+        EditorUpdateDelays delays, EditorMetrics metrics, IEclipseEditor<?> editor, IEditorInput input,
+        IResource eclipseResource, FileObject resource) {
+        super(name(resource, 0));
+        setPriority(Job.LONG);
+        this.watchdog = new CancellationWatchdog(this, interruptTimeMillis, killTimeMillis);
+
+        this.resourceService = resourceService;
+        this.contextService = contextService;
+        this.analyzer = analyzer;
+        this.analysisResultProcessor = analysisResultProcessor;
+        this.delays = delays;
+        this.metrics = metrics;
+
+        this.editor = editor;
+        this.input = input;
+        this.eclipseResource = eclipseResource;
+        this.resource = resource;
+    }
+
+
+    /**
+     * @return True if context and analysis are available for given language implementation, false otherwise.
+     */
+    public boolean available(ILanguageImpl langImpl) {
+        return contextService.available(langImpl) && analyzer.available(langImpl);
+    }
+
+
+    @Override public boolean request(EditorAnalysisRequest<P> request, long delayMs) {
+        // Show the chosen delay in the progress view.
+        setName(name(resource, delayMs));
+        return super.request(request, delayMs);
+    }
+
+
+    @Override public boolean belongsTo(Object family) {
+        return input.equals(family) || editor.equals(family);
+    }
+
+    @Override protected IStatus run(final IProgressMonitor monitor) {
+        final EditorAnalysisRequest<P> request = takeRequest();
+        if(request == null) {
+            return StatusUtils.success();
+        }
+
+        logger.debug("Running editor analysis job for {}", resource);
+
+        final IWorkspace workspace = ResourcesPlugin.getWorkspace();
+
+        final UpdateTimings timings = new UpdateTimings();
+        try {
+            final IStatus status = update(workspace, request, timings, monitor);
+            return status;
+        } catch(MetaborgRuntimeException | MetaborgException | CoreException e) {
+            if(monitor.isCanceled()) {
+                return StatusUtils.cancel();
+            }
+
+            final IMessage errorMessage = MessageFactory.newErrorAtTop(resource,
+                "Failed to analyze editor; see the console or error log for more information", MessageType.INTERNAL, e);
+            editor.setMessages(MessageType.ANALYSIS, Collections.<IMessage>emptyList(), 0, monitor);
+            editor.setMessages(MessageType.INTERNAL, Iterables2.singleton(errorMessage), 1, monitor);
+
+            final String message = logger.format("Failed to analyze editor for {}", resource);
+            logger.error(message, e);
+            return StatusUtils.silentError(message, e);
+        } catch(InterruptedException | CancellationException | ThreadDeath e) {
+            return StatusUtils.cancel();
+        } catch(OperationCanceledException e) {
+            return StatusUtils.cancel();
+        } catch(Throwable e) {
+            final String message = logger.format("Failed to analyze editor for {}", resource);
+            logger.error(message, e);
+            return StatusUtils.silentError(message, e);
+        } finally {
+            final long cancelLatency = watchdog.stopped();
+            if(cancelLatency >= 0) {
+                timings.set(EditorPhase.CANCEL, cancelLatency);
+            }
+            metrics.record(resource, timings);
+            editor.setUpdateTimings(timings);
+            monitor.done();
+        }
+    }
+
+    @Override protected void canceling() {
+        final Thread thread = getThread();
+        if(thread == null) {
+            return;
+        }
+        watchdog.cancelled(thread);
+    }
+
+
+    private IStatus update(IWorkspace workspace, EditorAnalysisRequest<P> request, UpdateTimings timings,
+        final IProgressMonitor progressMonitor) throws MetaborgException, CoreException, InterruptedException {
+        timings.setLanguage(request.langImpl);
+        final SubMonitor monitor = SubMonitor.convert(progressMonitor, 55);
+        final Monitor spxMonitor = new Monitor(monitor);
+
+        if(interrupted(spxMonitor))
+            return StatusUtils.cancel();
+        spxMonitor.setDescription("Analyzing");
+        final IContext context = contextService.get(resource, request.project, request.langImpl);
+        final long startTime = System.currentTimeMillis();
+        final IAnalyzeResult<A, AU> analysisResult =
+            analyze(request.parseResult, context, spxMonitor.subProgress(50));
+        delays.analyzed(request.langImpl, resource, System.currentTimeMillis() - startTime);
+        timings.end(EditorPhase.ANALYZE);
+
+        if(interrupted(spxMonitor))
+            return StatusUtils.cancel();
+        spxMonitor.setDescription("Processing analysis messages");
+        analysisMessages(workspace, spxMonitor.subProgress(5), analysisResult);
+        timings.end(EditorPhase.ANALYSIS_MESSAGES);
+
+        return StatusUtils.success();
+    }
+
+
+    private static String name(FileObject resource, long delayMs) {
+        return "Analyzing Spoofax editor for " + resource.toString() + " (delayed " + delayMs + "ms)";
+    }
+
+    /**
+     * @return True if the analysis was cancelled, or if the document changed or a newer request has arrived, false
+     *         otherwise.
+     */
+    private boolean interrupted(Monitor monitor) {
+        return monitor.cancelled() || superseded();
+    }
+
+    private IAnalyzeResult<A, AU> analyze(P parseResult, IContext context, Monitor monitor)
+        throws AnalysisException, InterruptedException, ThreadDeath {
+        final IAnalyzeResult<A, AU> analysisResult;
+        try(IClosableLock lock = context.write()) {
+            analysisResultProcessor.invalidate(parseResult.source());
+            try {
+                analysisResult = analyzer.analyze(parseResult, context, monitor, supersedable(monitor));
+            } catch(AnalysisException e) {
+                analysisResultProcessor.error(resource, e);
+                throw e;
+            } catch(ThreadDeath e) {
+                analysisResultProcessor.error(resource, new AnalysisException(context, "Editor update job killed", e));
+                throw e;
+            }
+            analysisResultProcessor.update(analysisResult.result(), Sets.<FileName>newHashSet());
+        }
+        return analysisResult;
+    }
+
+    private void analysisMessages(IWorkspace workspace, Monitor monitor, IAnalyzeResult<A, AU> analysisResult)
+        throws CoreException {
+        // Show messages of the edited file as annotations in the editor, which does not require a workspace operation.
+        // Persistent markers of the edited file are created by builds.
+        final List<IMessage> messages = Lists.newArrayList(analysisResult.result().messages());
+        final List<AU> updates = Lists.newArrayList();
+        for(AU update : analysisResult.updates()) {
+            if(resource.equals(update.source())) {
+                Iterables.addAll(messages, update.messages());
+            } else {
+                updates.add(update);
+            }
+        }
+        editor.setMessages(MessageType.INTERNAL, Collections.<IMessage>emptyList(), 0, monitor.eclipseMonitor());
+        editor.setMessages(MessageType.ANALYSIS, messages, MarkerUtils.maxFileMarkers, monitor.eclipseMonitor());
+        if(updates.isEmpty()) {
+            return;
+        }
+
+        // Other files updated by the analysis are not shown in this editor, update their markers atomically using a
+        // workspace runnable, to prevent flashing/jumping markers.
+        final IWorkspaceRunnable analysisMarkerUpdater = new IWorkspaceRunnable() {
+            @Override public void run(IProgressMonitor workspaceMonitor) throws CoreException {
+                // Only add and remove the markers that changed, to prevent a storm of marker changes on each update.
+                // Markers of the updated files share the project limit.
+                int remainingMarkers = MarkerUtils.maxProjectMarkers;
+                for(AU result : updates) {
+                    if(workspaceMonitor.isCanceled())
+                        return;
+                    final IResource messagesEclipseResource = resourceService.unresolve(result.source());
+                    if(messagesEclipseResource == null) {
+                        // In case the analysis sends an update for a resource that is not an eclipse resource; ignore.
+                        logger.debug("Cannot perform analysis update for resource {}, it is not an Eclipse resource",
+                            result.source());
+                        continue;
+                    }
+                    if(!messagesEclipseResource.exists()) {
+                        // In case the analysis sends an update for a resource that does not exist; ignore.
+                        logger.debug("Cannot perform analysis update for resource {}, since it does not exist",
+                            messagesEclipseResource);
+                        continue;
+                    }
+                    remainingMarkers -= MarkerUtils.reconcileMarkers(messagesEclipseResource, MessageType.ANALYSIS,
+                        result.messages(), Math.min(MarkerUtils.maxFileMarkers, remainingMarkers));
+                }
+            }
+        };
+        workspace.run(analysisMarkerUpdater, eclipseResource, IWorkspace.AVOID_UPDATE, monitor.eclipseMonitor());
+    }
+}
@@ -0,0 +1,26 @@
+package org.metaborg.spoofax.eclipse.editor;
+
+import org.metaborg.core.language.ILanguageImpl;
+import org.metaborg.core.project.IProject;
+import org.metaborg.core.syntax.IParseUnit;
+
+/**
+ * Request for analyzing a parse result of an editor, processed by the editor's {@link EditorAnalysisJob}.
+ */
+public class EditorAnalysisRequest<P extends IParseUnit> {
+    public final P parseResult;
+    public final IProject project;
+    public final ILanguageImpl langImpl;
+
+
+    public EditorAnalysisRequest(P parseResult, IProject project, ILanguageImpl langImpl) {
+        this.parseResult = parseResult;
+        this.project = project;
+        this.langImpl = langImpl;
+    }
+
+
+    @Override public String toString() {
+        return "EditorAnalysisRequest[source = " + parseResult.source() + "]";
+    }
+}
@@ -12,12 +12,47 @@ public class EditorPreferences {
     public static final String bracketMatchingHighlightAtCaret = bracketMatching + ".highlight-at-caret";
     public static final String bracketMatchingHighlightPeers = bracketMatching + ".highlight-peers";
 
+    private static final String delay = id + ".delay";
+    public static final String parseMessagesDelayMin = delay + ".parsemessages.min";
+    public static final String parseMessagesDelayMax = delay + ".parsemessages.max";
+    public static final String analysisDelayMin = delay + ".analysis.min";
+    public static final String analysisDelayMax = delay + ".analysis.max";
+
+    private static final String largeFile = id + ".largefile";
+    public static final String largeFileLength = largeFile + ".length";
+    public static final String largeFileLines = largeFile + ".lines";
+
 
     public static void setDefaults(IPreferenceStore store) {
         store.setDefault(bracketMatchingEnabled, true);
         store.setDefault(bracketMatchingColor, "128, 128, 128");
         store.setDefault(bracketMatchingHighlightAtCaret, true);
         store.setDefault(bracketMatchingHighlightPeers, false);
+        store.setDefault(parseMessagesDelayMin, 50);
+        store.setDefault(parseMessagesDelayMax, 1000);
+        store.setDefault(analysisDelayMin, 100);
+        store.setDefault(analysisDelayMax, 5000);
+        store.setDefault(largeFileLength, 1024 * 1024);
+        store.setDefault(largeFileLines, 30000);
+    }
+
+
+    public static DelayBounds parseMessagesDelayBounds(IPreferenceStore store) {
+        return new DelayBounds(store.getInt(parseMessagesDelayMin), store.getInt(parseMessagesDelayMax));
+    }
+
+    public static DelayBounds analysisDelayBounds(IPreferenceStore store) {
+        return new DelayBounds(store.getInt(analysisDelayMin), store.getInt(analysisDelayMax));
+    }
+
+    /**
+     * @return True if a document with given length and number of lines exceeds one of the large file thresholds, false
+     *         otherwise. A threshold of 0 or less disables that threshold.
+     */
+    public static boolean largeFile(IPreferenceStore store, int length, int lines) {
+        final int maxLength = store.getInt(largeFileLength);
+        final int maxLines = store.getInt(largeFileLines);
+        return (maxLength > 0 && length > maxLength) || (maxLines > 0 && lines > maxLines);
     }
 
 
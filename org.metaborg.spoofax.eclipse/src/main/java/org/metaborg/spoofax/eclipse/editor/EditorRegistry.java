@@ -72,6 +72,7 @@ public class EditorRegistry<F>
                             final IEclipseEditor<F> editor = get(editorRef);
                             if(editor != null) {
                                 add(editor);
+                                editor.setVisible(page.isPartVisible(editor));
                             }
                         }
                     }
@@ -149,13 +150,20 @@ public class EditorRegistry<F>
     }
 
     private void setCurrent(IEclipseEditor<F> editor) {
+        if(currentActive != null && currentActive != editor) {
+            currentActive.setActive(false);
+        }
         currentActive = editor;
+        editor.setActive(true);
         if(contextActivation == null) {
             contextActivation = contextService.activateContext(contextId);
         }
     }
 
     private void unsetCurrent() {
+        if(currentActive != null) {
+            currentActive.setActive(false);
+        }
         currentActive = null;
         if(contextActivation != null) {
             contextService.deactivateContext(contextActivation);
@@ -263,11 +271,17 @@ public class EditorRegistry<F>
     }
 
     @Override public void partHidden(IWorkbenchPartReference partRef) {
-
+        final IEclipseEditor<F> editor = get(partRef);
+        if(editor != null) {
+            editor.setVisible(false);
+        }
     }
 
     @Override public void partVisible(IWorkbenchPartReference partRef) {
-
+        final IEclipseEditor<F> editor = get(partRef);
+        if(editor != null) {
+            editor.setVisible(true);
+        }
     }
 
     @Override public void partInputChanged(IWorkbenchPartReference partRef) {
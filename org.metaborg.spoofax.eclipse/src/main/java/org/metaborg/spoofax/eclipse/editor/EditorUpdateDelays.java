@@ -0,0 +1,106 @@
+package org.metaborg.spoofax.eclipse.editor;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+
+import org.apache.commons.vfs2.FileName;
+import org.apache.commons.vfs2.FileObject;
+import org.metaborg.core.language.ILanguageImpl;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+/**
+ * Chooses the delays before showing parse messages and before analyzing, from the measured parse and analysis
+ * durations of files and languages, and from the typing cadence in the editor. Cheap languages get short delays, while
+ * expensive analyses are run less often when the user is typing.
+ */
+public class EditorUpdateDelays {
+    private static final Callable<MovingAverage> newAverage = new Callable<MovingAverage>() {
+        @Override public MovingAverage call() {
+            return new MovingAverage();
+        }
+    };
+
+    private final Cache<ILanguageImpl, MovingAverage> languageParseDurations =
+        CacheBuilder.newBuilder().weakKeys().build();
+    private final Cache<ILanguageImpl, MovingAverage> languageAnalysisDurations =
+        CacheBuilder.newBuilder().weakKeys().build();
+    private final Cache<FileName, MovingAverage> fileParseDurations =
+        CacheBuilder.newBuilder().maximumSize(1024).build();
+    private final Cache<FileName, MovingAverage> fileAnalysisDurations =
+        CacheBuilder.newBuilder().maximumSize(1024).build();
+
+
+    /**
+     * Records the duration of parsing given file.
+     */
+    public void parsed(ILanguageImpl langImpl, FileObject resource, long durationMs) {
+        average(languageParseDurations, langImpl).add(durationMs);
+        average(fileParseDurations, resource.getName()).add(durationMs);
+    }
+
+    /**
+     * Records the duration of analyzing given file.
+     */
+    public void analyzed(ILanguageImpl langImpl, FileObject resource, long durationMs) {
+        average(languageAnalysisDurations, langImpl).add(durationMs);
+        average(fileAnalysisDurations, resource.getName()).add(durationMs);
+    }
+
+
+    /**
+     * Chooses the delay before showing parse messages. Messages are held back for about two keystrokes, such that
+     * messages about half-typed text are not shown while the user is typing.
+     *
+     * @param typingIntervalMs
+     *            Average interval between keystrokes, or -1 if unknown.
+     * @return Delay in milliseconds.
+     */
+    public long parseMessagesDelay(ILanguageImpl langImpl, FileObject resource, long typingIntervalMs,
+        DelayBounds bounds) {
+        final long parseMs = duration(languageParseDurations, fileParseDurations, langImpl, resource);
+        return bounds.clamp(Math.max(2 * typingIntervalMs, parseMs));
+    }
+
+    /**
+     * Chooses the delay before analyzing. Analysis is delayed for at least its expected duration, such that the
+     * analysis of an editor runs at most about half of the time while the user is typing.
+     *
+     * @param typingIntervalMs
+     *            Average interval between keystrokes, or -1 if unknown.
+     * @return Delay in milliseconds.
+     */
+    public long analysisDelay(ILanguageImpl langImpl, FileObject resource, long typingIntervalMs,
+        DelayBounds bounds) {
+        final long analysisMs = duration(languageAnalysisDurations, fileAnalysisDurations, langImpl, resource);
+        return bounds.clamp(Math.max(3 * typingIntervalMs, analysisMs));
+    }
+
+
+    /**
+     * @return Average duration of given file, of given language when the file has no measurements, or -1 if neither
+     *         has measurements.
+     */
+    private long duration(Cache<ILanguageImpl, MovingAverage> languageDurations,
+        Cache<FileName, MovingAverage> fileDurations, ILanguageImpl langImpl, FileObject resource) {
+        final MovingAverage fileDuration = fileDurations.getIfPresent(resource.getName());
+        if(fileDuration != null && fileDuration.get() >= 0) {
+            return fileDuration.get();
+        }
+        final MovingAverage languageDuration = languageDurations.getIfPresent(langImpl);
+        if(languageDuration != null) {
+            return languageDuration.get();
+        }
+        return -1;
+    }
+
+    private static <K> MovingAverage average(Cache<K, MovingAverage> averages, K key) {
+        try {
+            return averages.get(key, newAverage);
+        } catch(ExecutionException e) {
+            // Cannot happen, creating an average does not throw.
+            throw new RuntimeException(e);
+        }
+    }
+}
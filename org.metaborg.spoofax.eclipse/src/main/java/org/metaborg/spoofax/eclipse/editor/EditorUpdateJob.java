@@ -1,14 +1,10 @@
 package org.metaborg.spoofax.eclipse.editor;
 
+import java.util.Collections;
 import java.util.concurrent.CancellationException;
 
-import org.apache.commons.vfs2.FileName;
 import org.apache.commons.vfs2.FileObject;
 import org.eclipse.core.resources.IResource;
-import org.eclipse.core.resources.IWorkspace;
-import org.eclipse.core.resources.IWorkspaceRunnable;
-import org.eclipse.core.resources.ResourcesPlugin;
-import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.OperationCanceledException;
@@ -17,13 +13,8 @@ import org.eclipse.core.runtime.jobs.Job;
 import org.eclipse.ui.IEditorInput;
 import org.metaborg.core.MetaborgException;
 import org.metaborg.core.MetaborgRuntimeException;
-import org.metaborg.core.analysis.AnalysisException;
-import org.metaborg.core.analysis.IAnalysisService;
-import org.metaborg.core.analysis.IAnalyzeResult;
 import org.metaborg.core.analysis.IAnalyzeUnit;
 import org.metaborg.core.analysis.IAnalyzeUnitUpdate;
-import org.metaborg.core.context.IContext;
-import org.metaborg.core.context.IContextService;
 import org.metaborg.core.language.ILanguageIdentifierService;
 import org.metaborg.core.language.ILanguageImpl;
 import org.metaborg.core.language.IdentifiedResource;
@@ -32,7 +23,6 @@ import org.metaborg.core.messages.MessageFactory;
 import org.metaborg.core.messages.MessageType;
 import org.metaborg.core.outline.IOutline;
 import org.metaborg.core.outline.IOutlineService;
-import org.metaborg.core.processing.analyze.IAnalysisResultUpdater;
 import org.metaborg.core.processing.parse.IParseResultUpdater;
 import org.metaborg.core.project.IProject;
 import org.metaborg.core.project.IProjectService;
@@ -46,81 +36,118 @@ import org.metaborg.core.syntax.ISyntaxService;
 import org.metaborg.core.syntax.ParseException;
 import org.metaborg.core.unit.IInputUnitService;
 import org.metaborg.spoofax.core.style.CategorizerValidator;
-import org.metaborg.spoofax.eclipse.job.ThreadKillerJob;
+import org.metaborg.spoofax.eclipse.editor.metrics.EditorMetrics;
+import org.metaborg.spoofax.eclipse.editor.metrics.EditorPhase;
+import org.metaborg.spoofax.eclipse.editor.metrics.UpdateTimings;
+import org.metaborg.spoofax.eclipse.job.CancellationWatchdog;
+import org.metaborg.spoofax.eclipse.job.CoalescingJob;
 import org.metaborg.spoofax.eclipse.processing.Monitor;
-import org.metaborg.spoofax.eclipse.resource.IEclipseResourceService;
+import org.metaborg.spoofax.eclipse.processing.ParseResultCache;
 import org.metaborg.spoofax.eclipse.util.MarkerUtils;
 import org.metaborg.spoofax.eclipse.util.Nullable;
 import org.metaborg.spoofax.eclipse.util.StatusUtils;
-import org.metaborg.util.concurrent.IClosableLock;
+import org.metaborg.util.iterators.Iterables2;
 import org.metaborg.util.log.ILogger;
 import org.metaborg.util.log.LoggerUtils;
 
-import com.google.common.collect.Sets;
-
+/**
+ * Editor update stage that identifies the language, parses, styles, and outlines the text, and processes parse
+ * messages. Parse messages are shown as annotations in the editor, so no scheduling rule on the edited file or
+ * workspace operation is required, and styling is not delayed by builds or analyses in the same project. Hands the
+ * parse result off to the {@link EditorAnalysisJob} when analysis is enabled.
+ */
 public class EditorUpdateJob<I extends IInputUnit, P extends IParseUnit, A extends IAnalyzeUnit, AU extends IAnalyzeUnitUpdate, F>
-    extends Job {
+    extends CoalescingJob<EditorUpdateRequest> {
     private static final ILogger logger = LoggerUtils.logger(EditorUpdateJob.class);
     private static final long interruptTimeMillis = 5000;
-    private static final long killTimeMillis = 10000;
+    private static final long killTimeMillis = 30000;
+    private static final int degradedMaxParseMessages = 100;
 
-    private final IEclipseResourceService resourceService;
     private final ILanguageIdentifierService languageIdentifierService;
-    private final IContextService contextService;
     private final IProjectService projectService;
     private final IInputUnitService<I> unitService;
     private final ISyntaxService<I, P> syntaxService;
-    private final IAnalysisService<P, A, AU> analyzer;
     private final ICategorizerService<P, A, F> categorizer;
     private final IStylerService<F> styler;
     private final IOutlineService<P, A> outlineService;
     private final IParseResultUpdater<P> parseResultProcessor;
-    private final IAnalysisResultUpdater<P, A> analysisResultProcessor;
+    private final ParseResultCache parseCache;
+    private final EditorUpdateDelays delays;
+    private final EditorMetrics metrics;
 
     private final IEclipseEditor<F> editor;
     private final IEditorInput input;
     private final @Nullable IResource eclipseResource;
     private final FileObject resource;
-    private final String text;
-    private final boolean instantaneous;
-    private final long analysisDelayMs;
-    private final boolean analysis;
-
-    private ThreadKillerJob threadKiller;
-
-
-    public EditorUpdateJob(IEclipseResourceService resourceService,
-        ILanguageIdentifierService languageIdentifierService, IContextService contextService,
-        IProjectService projectService, IInputUnitService<I> unitService, ISyntaxService<I, P> syntaxService,
-        IAnalysisService<P, A, AU> analyzer, ICategorizerService<P, A, F> categorizer, IStylerService<F> styler,
-        IOutlineService<P, A> outlineService, IParseResultUpdater<P> parseResultProcessor,
-        IAnalysisResultUpdater<P, A> analysisResultProcessor, IEclipseEditor<F> editor, IEditorInput input,
-        @Nullable IResource eclipseResource, FileObject resource, String text, boolean instantaneous,
-        long analysisDelayMs, boolean analysis) {
+    private final @Nullable EditorAnalysisJob<P, A, AU> analysisJob;
+
+    private final CancellationWatchdog watchdog;
+
+
+    public EditorUpdateJob(ILanguageIdentifierService languageIdentifierService, IProjectService projectService,
+        IInputUnitService<I> unitService, ISyntaxService<I, P> syntaxService, ICategorizerService<P, A, F> categorizer,
+        IStylerService<F> styler, IOutlineService<P, A> outlineService, IParseResultUpdater<P> parseResultProcessor,
+        ParseResultCache parseCache, EditorUpdateDelays delays, EditorMetrics metrics, IEclipseEditor<F> editor,
+        IEditorInput input, @Nullable IResource eclipseResource, FileObject resource,
+        @Nullable EditorAnalysisJob<P, A, AU> analysisJob) {
         super("Updating Spoofax editor for " + resource.toString());
         setPriority(Job.SHORT);
+        this.watchdog = new CancellationWatchdog(this, interruptTimeMillis, killTimeMillis);
 
-        this.resourceService = resourceService;
         this.languageIdentifierService = languageIdentifierService;
-        this.contextService = contextService;
         this.projectService = projectService;
         this.unitService = unitService;
         this.syntaxService = syntaxService;
-        this.analyzer = analyzer;
         this.categorizer = categorizer;
         this.styler = styler;
         this.outlineService = outlineService;
         this.parseResultProcessor = parseResultProcessor;
-        this.analysisResultProcessor = analysisResultProcessor;
+        this.parseCache = parseCache;
+        this.delays = delays;
+        this.metrics = metrics;
 
         this.editor = editor;
         this.input = input;
         this.eclipseResource = eclipseResource;
         this.resource = resource;
-        this.text = text;
-        this.instantaneous = instantaneous;
-        this.analysisDelayMs = analysisDelayMs;
-        this.analysis = analysis;
+        this.analysisJob = analysisJob;
+    }
+
+
+    /**
+     * @return Analysis stage that parse results are handed off to, or null if analysis is disabled.
+     */
+    public @Nullable EditorAnalysisJob<P, A, AU> analysisJob() {
+        return analysisJob;
+    }
+
+    /**
+     * Sets the priority of this job and of the analysis stage, such that updates of the active editor take precedence
+     * over updates of other editors.
+     */
+    public void setActive(boolean active) {
+        setPriority(active ? Job.SHORT : Job.LONG);
+        if(analysisJob != null) {
+            analysisJob.setPriority(active ? Job.LONG : Job.BUILD);
+        }
+    }
+
+    @Override public void markStale() {
+        super.markStale();
+        if(analysisJob != null) {
+            analysisJob.markStale();
+        }
+    }
+
+    @Override public void dispose() {
+        super.dispose();
+        if(analysisJob != null) {
+            analysisJob.dispose();
+        }
+    }
+
+    @Override protected EditorUpdateRequest coalesce(EditorUpdateRequest pending, EditorUpdateRequest next) {
+        return pending.coalesce(next);
     }
 
 
@@ -129,38 +156,25 @@ public class EditorUpdateJob<I extends IInputUnit, P extends IParseUnit, A exten
     }
 
     @Override protected IStatus run(final IProgressMonitor monitor) {
-        logger.debug("Running editor update job for {}", resource);
+        final EditorUpdateRequest request = takeRequest();
+        if(request == null) {
+            return StatusUtils.success();
+        }
 
-        final IWorkspace workspace = ResourcesPlugin.getWorkspace();
+        logger.debug("Running editor update job for {}", resource);
 
+        final UpdateTimings timings = new UpdateTimings();
         try {
-            final IStatus status = update(workspace, monitor);
+            final IStatus status = update(request, timings, monitor);
             return status;
-        } catch(MetaborgRuntimeException | MetaborgException | CoreException e) {
+        } catch(MetaborgRuntimeException | MetaborgException e) {
             if(monitor.isCanceled()) {
                 return StatusUtils.cancel();
             }
 
-            if(eclipseResource != null) {
-                try {
-                    final IWorkspaceRunnable parseMarkerUpdater = new IWorkspaceRunnable() {
-                        @Override public void run(IProgressMonitor workspaceMonitor) throws CoreException {
-                            if(workspaceMonitor.isCanceled())
-                                return;
-                            MarkerUtils.clearAll(eclipseResource);
-                            MarkerUtils.createMarker(eclipseResource,
-                                MessageFactory.newErrorAtTop(resource,
-                                    "Failed to update editor; see the console or error log for more information",
-                                    MessageType.INTERNAL, e));
-                        }
-                    };
-                    workspace.run(parseMarkerUpdater, eclipseResource, IWorkspace.AVOID_UPDATE, monitor);
-                } catch(CoreException e2) {
-                    final String message = logger.format("Failed to show internal error marker for {}", resource);
-                    logger.error(message, e2);
-                    return StatusUtils.silentError(message, e2);
-                }
-            }
+            final IMessage errorMessage = MessageFactory.newErrorAtTop(resource,
+                "Failed to update editor; see the console or error log for more information", MessageType.INTERNAL, e);
+            editor.setMessages(MessageType.INTERNAL, Iterables2.singleton(errorMessage), 1, monitor);
 
             final String message = logger.format("Failed to update editor for {}", resource);
             logger.error(message, e);
@@ -174,9 +188,12 @@ public class EditorUpdateJob<I extends IInputUnit, P extends IParseUnit, A exten
             logger.error(message, e);
             return StatusUtils.silentError(message, e);
         } finally {
-            if(threadKiller != null) {
-                threadKiller.cancel();
+            final long cancelLatency = watchdog.stopped();
+            if(cancelLatency >= 0) {
+                timings.set(EditorPhase.CANCEL, cancelLatency);
             }
+            metrics.record(resource, timings);
+            editor.setUpdateTimings(timings);
             monitor.done();
         }
     }
@@ -186,17 +203,13 @@ public class EditorUpdateJob<I extends IInputUnit, P extends IParseUnit, A exten
         if(thread == null) {
             return;
         }
-
-        logger.debug("Cancelling editor update job for {}, interrupting in {}ms, killing in {}ms", resource,
-            interruptTimeMillis, interruptTimeMillis + killTimeMillis);
-        threadKiller = new ThreadKillerJob(thread, killTimeMillis);
-        threadKiller.schedule(interruptTimeMillis);
+        watchdog.cancelled(thread);
     }
 
 
-    private IStatus update(IWorkspace workspace, final IProgressMonitor progressMonitor)
-        throws MetaborgException, CoreException, InterruptedException, ThreadDeath {
-        final SubMonitor monitor = SubMonitor.convert(progressMonitor, 95);
+    private IStatus update(EditorUpdateRequest request, UpdateTimings timings, final IProgressMonitor progressMonitor)
+        throws MetaborgException, InterruptedException, ThreadDeath {
+        final SubMonitor monitor = SubMonitor.convert(progressMonitor, 40);
         final Monitor spxMonitor = new Monitor(monitor);
 
         spxMonitor.setDescription("Identifying language");
@@ -206,25 +219,33 @@ public class EditorUpdateJob<I extends IInputUnit, P extends IParseUnit, A exten
             throw new MetaborgException("Language could not be identified");
         }
         final ILanguageImpl langImpl = identified.language;
+        timings.setLanguage(langImpl);
+        timings.end(EditorPhase.IDENTIFY);
         spxMonitor.work(5);
 
-        if(spxMonitor.cancelled())
+        if(interrupted(spxMonitor))
             return StatusUtils.cancel();
         spxMonitor.setDescription("Parsing");
-        final I inputUnit = unitService.inputUnit(resource, text, langImpl, identified.dialect);
-        final P parseResult = parse(inputUnit, spxMonitor.subProgress(20));
+        final I inputUnit = unitService.inputUnit(resource, request.text, langImpl, identified.dialect);
+        final P parseResult = parse(request, inputUnit, spxMonitor.subProgress(20));
+        timings.end(EditorPhase.PARSE);
 
         if(parseResult.valid()) {
-            if(spxMonitor.cancelled())
+            if(interrupted(spxMonitor))
                 return StatusUtils.cancel();
             spxMonitor.setDescription("Styling");
-            style(monitor, langImpl, parseResult);
+            style(monitor, request, langImpl, parseResult);
+            timings.end(EditorPhase.STYLE);
             spxMonitor.work(5);
 
-            if(spxMonitor.cancelled())
-                return StatusUtils.cancel();
-            spxMonitor.setDescription("Creating outline");
-            outline(monitor, langImpl, parseResult);
+            // Large files only get an outline when it is explicitly requested.
+            if(!request.degraded) {
+                if(interrupted(spxMonitor))
+                    return StatusUtils.cancel();
+                spxMonitor.setDescription("Creating outline");
+                outline(monitor, request, langImpl, parseResult);
+                timings.end(EditorPhase.OUTLINE);
+            }
             spxMonitor.work(5);
         } else {
             spxMonitor.work(10);
@@ -237,60 +258,73 @@ public class EditorUpdateJob<I extends IInputUnit, P extends IParseUnit, A exten
         }
 
         // Sleep before showing parse messages to prevent showing irrelevant messages while user is still typing.
-        if(!instantaneous) {
-            try {
-                spxMonitor.setDescription("Waiting");
-                Thread.sleep(300);
-            } catch(InterruptedException e) {
+        if(!request.instantaneous) {
+            final long delayMs = delays.parseMessagesDelay(langImpl, resource, request.typingIntervalMs,
+                request.parseMessagesDelayBounds);
+            spxMonitor.setDescription("Waiting " + delayMs + "ms");
+            if(!await(delayMs, spxMonitor)) {
                 return StatusUtils.cancel();
             }
+            timings.end(EditorPhase.WAIT);
         }
 
-        if(spxMonitor.cancelled())
+        if(interrupted(spxMonitor))
             return StatusUtils.cancel();
         spxMonitor.setDescription("Processing parse messages");
-        parseMessages(workspace, spxMonitor.subProgress(5), parseResult);
+        parseMessages(monitor, parseResult, request.degraded ? degradedMaxParseMessages : MarkerUtils.maxFileMarkers);
+        spxMonitor.work(5);
+        timings.end(EditorPhase.PARSE_MESSAGES);
 
-        // Stop if parsing produced an invalid result, or if analysis is disabled.
-        if(!parseResult.valid() || !analysis) {
+        // Stop if parsing produced an invalid result.
+        if(!parseResult.valid()) {
             return StatusUtils.silentError();
         }
 
-        // Stop if context or analysis is unavailable.
-        if(!contextService.available(langImpl) || !analyzer.available(langImpl)) {
+        // Stop if analysis is disabled, or if the file is large and analysis was not explicitly requested.
+        if(analysisJob == null || request.degraded) {
             return StatusUtils.success();
         }
 
-        // Sleep before analyzing to prevent running many analyses when small edits are made in succession.
-        if(!instantaneous) {
-            try {
-                spxMonitor.setDescription("Waiting");
-                Thread.sleep(analysisDelayMs);
-            } catch(InterruptedException e) {
-                return StatusUtils.cancel();
-            }
+        // Stop if context or analysis is unavailable.
+        if(!analysisJob.available(langImpl)) {
+            return StatusUtils.success();
         }
 
-        if(spxMonitor.cancelled())
-            return StatusUtils.cancel();
-        spxMonitor.setDescription("Analyzing");
-        final IContext context = contextService.get(resource, project, langImpl);
-        final IAnalyzeResult<A, AU> analysisResult = analyze(parseResult, context, spxMonitor.subProgress(50));
-
-        if(spxMonitor.cancelled())
-            return StatusUtils.cancel();
-        spxMonitor.setDescription("Processing analysis messages");
-        analysisMessages(workspace, spxMonitor.subProgress(5), analysisResult);
+        // Hand off to the analysis stage, which is scheduled with the project and Stratego rules. Delay analysis to
+        // prevent running many analyses when small edits are made in succession.
+        final EditorAnalysisRequest<P> analysisRequest = new EditorAnalysisRequest<>(parseResult, project, langImpl);
+        final long analysisDelayMs = request.instantaneous ? 0
+            : delays.analysisDelay(langImpl, resource, request.typingIntervalMs, request.analysisDelayBounds);
+        analysisJob.request(analysisRequest, analysisDelayMs);
 
         return StatusUtils.success();
     }
 
 
-    private P parse(I input, Monitor monitor) throws ParseException, InterruptedException, ThreadDeath {
+    /**
+     * @return True if the update was cancelled, or if the document changed or a newer request has arrived, false
+     *         otherwise.
+     */
+    private boolean interrupted(Monitor monitor) {
+        return monitor.cancelled() || superseded();
+    }
+
+    private P parse(EditorUpdateRequest request, I input, Monitor monitor)
+        throws ParseException, InterruptedException, ThreadDeath {
         final P parseResult;
         try {
             parseResultProcessor.invalidate(resource);
-            parseResult = syntaxService.parse(input, monitor, monitor);
+            // Look up by document stamp, which does not hash the text of every update.
+            final P cachedParseResult = parseCache.<P>get(input, request.document, request.documentStamp);
+            if(cachedParseResult != null) {
+                logger.trace("Reusing cached parse result for {}", resource);
+                parseResult = cachedParseResult;
+            } else {
+                final long startTime = System.currentTimeMillis();
+                parseResult = syntaxService.parse(input, monitor, supersedable(monitor));
+                delays.parsed(input.langImpl(), resource, System.currentTimeMillis() - startTime);
+                parseCache.put(parseResult, request.document, request.documentStamp);
+            }
             parseResultProcessor.update(resource, parseResult);
         } catch(ParseException e) {
             parseResultProcessor.error(resource, e);
@@ -302,15 +336,16 @@ public class EditorUpdateJob<I extends IInputUnit, P extends IParseUnit, A exten
         return parseResult;
     }
 
-    private void style(final IProgressMonitor monitor, ILanguageImpl language, P parseResult) {
+    private void style(final IProgressMonitor monitor, EditorUpdateRequest request, ILanguageImpl language,
+        P parseResult) {
         final Iterable<IRegionCategory<F>> categories =
             CategorizerValidator.validate(categorizer.categorize(language, parseResult));
         final Iterable<IRegionStyle<F>> styles = styler.styleParsed(language, categories);
-        editor.setStyle(styles, text, monitor);
+        editor.setStyle(styles, request.documentStamp, monitor);
     }
 
-    private void outline(final IProgressMonitor monitor, ILanguageImpl language, P parseResult)
-        throws MetaborgException {
+    private void outline(final IProgressMonitor monitor, EditorUpdateRequest request, ILanguageImpl language,
+        P parseResult) throws MetaborgException {
         if(!outlineService.available(language)) {
             return;
         }
@@ -320,84 +355,13 @@ public class EditorUpdateJob<I extends IInputUnit, P extends IParseUnit, A exten
             return;
         }
 
-        editor.setOutline(outline, monitor);
-    }
-
-    private void parseMessages(IWorkspace workspace, Monitor monitor, final P parseResult) throws CoreException {
-        // Update markers atomically using a workspace runnable, to prevent flashing/jumping markers.
-        final IWorkspaceRunnable parseMarkerUpdater = new IWorkspaceRunnable() {
-            @Override public void run(IProgressMonitor workspaceMonitor) throws CoreException {
-                if(workspaceMonitor.isCanceled())
-                    return;
-                MarkerUtils.clearInternal(eclipseResource);
-                MarkerUtils.clearParser(eclipseResource);
-                for(IMessage message : parseResult.messages()) {
-                    MarkerUtils.createMarker(eclipseResource, message);
-                }
-            }
-        };
-        workspace.run(parseMarkerUpdater, eclipseResource, IWorkspace.AVOID_UPDATE, monitor.eclipseMonitor());
+        editor.setOutline(outline, request.documentStamp, monitor);
     }
 
-    private IAnalyzeResult<A, AU> analyze(P parseResult, IContext context, Monitor monitor)
-        throws AnalysisException, InterruptedException, ThreadDeath {
-        final IAnalyzeResult<A, AU> analysisResult;
-        try(IClosableLock lock = context.write()) {
-            analysisResultProcessor.invalidate(parseResult.source());
-            try {
-                analysisResult = analyzer.analyze(parseResult, context, monitor, monitor);
-            } catch(AnalysisException e) {
-                analysisResultProcessor.error(resource, e);
-                throw e;
-            } catch(ThreadDeath e) {
-                analysisResultProcessor.error(resource, new AnalysisException(context, "Editor update job killed", e));
-                throw e;
-            }
-            analysisResultProcessor.update(analysisResult.result(), Sets.<FileName>newHashSet());
-        }
-        return analysisResult;
-    }
-
-    private void analysisMessages(IWorkspace workspace, Monitor monitor, final IAnalyzeResult<A, AU> analysisResult)
-        throws CoreException {
-        // Update markers atomically using a workspace runnable, to prevent flashing/jumping markers.
-        final IWorkspaceRunnable analysisMarkerUpdater = new IWorkspaceRunnable() {
-            @Override public void run(IProgressMonitor workspaceMonitor) throws CoreException {
-                if(workspaceMonitor.isCanceled())
-                    return;
-                MarkerUtils.clearInternal(eclipseResource);
-                MarkerUtils.clearAnalysis(eclipseResource);
-                for(IMessage message : analysisResult.result().messages()) {
-                    if(workspaceMonitor.isCanceled())
-                        return;
-                    MarkerUtils.createMarker(eclipseResource, message);
-                }
-
-                for(AU result : analysisResult.updates()) {
-                    if(workspaceMonitor.isCanceled())
-                        return;
-                    final IResource messagesEclipseResource = resourceService.unresolve(result.source());
-                    if(messagesEclipseResource == null) {
-                        // In case the analysis sends an update for a resource that is not an eclipse resource; ignore.
-                        logger.debug("Cannot perform analysis update for resource {}, it is not an Eclipse resource",
-                            result.source());
-                        continue;
-                    }
-                    if(!messagesEclipseResource.exists()) {
-                        // In case the analysis sends an update for a resource that does not exist; ignore.
-                        logger.debug("Cannot perform analysis update for resource {}, since it does not exist",
-                            messagesEclipseResource);
-                        continue;
-                    }
-                    MarkerUtils.clearAnalysis(messagesEclipseResource);
-                    for(IMessage message : result.messages()) {
-                        if(workspaceMonitor.isCanceled())
-                            return;
-                        MarkerUtils.createMarker(messagesEclipseResource, message);
-                    }
-                }
-            }
-        };
-        workspace.run(analysisMarkerUpdater, eclipseResource, IWorkspace.AVOID_UPDATE, monitor.eclipseMonitor());
+    private void parseMessages(IProgressMonitor monitor, P parseResult, int maxMessages) {
+        // Show messages as annotations in the editor, which does not require a workspace operation. Persistent markers
+        // are created by builds.
+        editor.setMessages(MessageType.INTERNAL, Collections.<IMessage>emptyList(), 0, monitor);
+        editor.setMessages(MessageType.PARSER, parseResult.messages(), maxMessages, monitor);
     }
 }
@@ -0,0 +1,54 @@
+package org.metaborg.spoofax.eclipse.editor;
+
+import org.eclipse.jface.text.IDocument;
+
+/**
+ * Request for updating an editor, processed by the editor's {@link EditorUpdateJob}. Holds a snapshot of the document
+ * text, together with the document and its modification stamp at the time of the snapshot. Degraded requests are made
+ * for large files, and skip the outline and analysis, and limit the number of parse messages.
+ */
+public class EditorUpdateRequest {
+    public final IDocument document;
+    public final String text;
+    public final long documentStamp;
+    public final boolean instantaneous;
+    public final long typingIntervalMs;
+    public final DelayBounds parseMessagesDelayBounds;
+    public final DelayBounds analysisDelayBounds;
+    public final boolean degraded;
+
+
+    public EditorUpdateRequest(IDocument document, String text, long documentStamp, boolean instantaneous,
+        long typingIntervalMs, DelayBounds parseMessagesDelayBounds, DelayBounds analysisDelayBounds,
+        boolean degraded) {
+        this.document = document;
+        this.text = text;
+        this.documentStamp = documentStamp;
+        this.instantaneous = instantaneous;
+        this.typingIntervalMs = typingIntervalMs;
+        this.parseMessagesDelayBounds = parseMessagesDelayBounds;
+        this.analysisDelayBounds = analysisDelayBounds;
+        this.degraded = degraded;
+    }
+
+
+    /**
+     * Coalesces this request with given request, which was made after this request and before this request was
+     * processed, into a single request for the latest text.
+     *
+     * @param next
+     *            Request made after this request.
+     * @return Coalesced request.
+     */
+    public EditorUpdateRequest coalesce(EditorUpdateRequest next) {
+        // An explicitly requested full update is not degraded by coalescing it with a later degraded request.
+        return new EditorUpdateRequest(next.document, next.text, next.documentStamp,
+            instantaneous || next.instantaneous, next.typingIntervalMs, next.parseMessagesDelayBounds,
+            next.analysisDelayBounds, degraded && next.degraded);
+    }
+
+
+    @Override public String toString() {
+        return "EditorUpdateRequest[instantaneous = " + instantaneous + ", degraded = " + degraded + "]";
+    }
+}
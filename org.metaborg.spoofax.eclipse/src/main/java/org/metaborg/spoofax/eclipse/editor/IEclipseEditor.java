@@ -4,14 +4,18 @@ import org.eclipse.core.resources.IResource;
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.jface.text.IDocument;
 import org.eclipse.jface.text.ITextOperationTarget;
+import org.eclipse.jface.text.source.Annotation;
 import org.eclipse.jface.text.source.ISourceViewer;
 import org.eclipse.jface.text.source.SourceViewerConfiguration;
 import org.eclipse.jface.viewers.ISelectionProvider;
 import org.eclipse.ui.IEditorInput;
 import org.eclipse.ui.texteditor.ITextEditor;
 import org.metaborg.core.editor.IEditor;
+import org.metaborg.core.messages.IMessage;
+import org.metaborg.core.messages.MessageType;
 import org.metaborg.core.outline.IOutline;
 import org.metaborg.core.style.IRegionStyle;
+import org.metaborg.spoofax.eclipse.editor.metrics.UpdateTimings;
 import org.metaborg.spoofax.eclipse.util.Nullable;
 
 public interface IEclipseEditor<F> extends IEditor, ITextEditor {
@@ -60,18 +64,53 @@ public interface IEclipseEditor<F> extends IEditor, ITextEditor {
 
 
     /**
-     * Sets the text styling, using given text and monitor for cancellation. Can be called from any thread.
+     * Sets the text styling, using given document modification stamp and monitor for cancellation. The styling is
+     * discarded when the document has been modified after the stamp was taken. Can be called from any thread.
      */
-    void setStyle(Iterable<IRegionStyle<F>> style, String text, IProgressMonitor monitor);
+    void setStyle(Iterable<IRegionStyle<F>> style, long documentStamp, IProgressMonitor monitor);
 
     /**
-     * Sets the outline information, using given monitor for cancellation. Can be called from any thread.
+     * Sets the outline information, using given document modification stamp and monitor for cancellation. The outline
+     * is discarded when the document has been modified after the stamp was taken. Can be called from any thread.
      */
-    void setOutline(IOutline outline, IProgressMonitor monitor);
+    void setOutline(IOutline outline, long documentStamp, IProgressMonitor monitor);
+
+    /**
+     * Shows given messages of given type in the editor, replacing previously shown messages of that type, using given
+     * monitor for cancellation. Messages are shown as annotations, without creating persistent markers. Can be called
+     * from any thread.
+     */
+    void setMessages(MessageType type, Iterable<? extends IMessage> messages, int maxMessages,
+        IProgressMonitor monitor);
+
+    /**
+     * @return True if given annotation is superseded by messages shown in the editor, such as an annotation of a marker
+     *         of an older build, false otherwise. Can be called from any thread.
+     */
+    boolean supersedes(Annotation annotation);
+
+
+    /**
+     * Shows the durations of the phases of the latest update in the status line. Can be called from any thread.
+     */
+    void setUpdateTimings(UpdateTimings timings);
 
 
     /**
      * Opens the quick outline with previously set outline information.
      */
     void openQuickOutline();
+
+
+    /**
+     * Sets if the editor is visible. Hidden editors defer updates until they become visible again. Must be called from
+     * the main thread.
+     */
+    void setVisible(boolean visible);
+
+    /**
+     * Sets if the editor is the active editor. Updates of the active editor take precedence over updates of other
+     * editors. Must be called from the main thread.
+     */
+    void setActive(boolean active);
 }
@@ -0,0 +1,203 @@
+package org.metaborg.spoofax.eclipse.editor;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.core.resources.IMarker;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.WorkspaceJob;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.jface.text.IDocument;
+import org.eclipse.jface.text.Position;
+import org.eclipse.jface.text.source.Annotation;
+import org.eclipse.jface.text.source.IAnnotationModel;
+import org.eclipse.jface.text.source.IAnnotationModelExtension;
+import org.eclipse.ui.texteditor.MarkerAnnotation;
+import org.metaborg.core.messages.IMessage;
+import org.metaborg.core.messages.MessageSeverity;
+import org.metaborg.core.messages.MessageType;
+import org.metaborg.core.source.ISourceRegion;
+import org.metaborg.spoofax.eclipse.util.MarkerUtils;
+import org.metaborg.spoofax.eclipse.util.Nullable;
+import org.metaborg.spoofax.eclipse.util.OverflowMessages;
+import org.metaborg.spoofax.eclipse.util.StatusUtils;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+/**
+ * Shows the messages of editor updates as annotations in the annotation model of an editor. Unlike markers, annotations
+ * are not persisted and do not require a workspace operation, such that editor updates do not contend with builds for
+ * workspace locks. Persistent markers are only created by builds. The first time the editor shows parse or analysis
+ * messages, the markers of that type on the resource of the editor are deleted once, since they were created by an
+ * older build and would otherwise show stale messages next to the editor messages. Marker annotations of markers that
+ * later builds create are {@link #supersedes superseded} in the hover. Messages over the maximum are stored in
+ * {@link OverflowMessages} for the resource of the editor.
+ *
+ * THREADING: {@link #set} and {@link #dispose} must be called from the main thread, {@link #supersedes} can be called
+ * from any thread.
+ */
+public class MessageAnnotations {
+    private static final String errorType = "org.eclipse.ui.workbench.texteditor.error";
+    private static final String warningType = "org.eclipse.ui.workbench.texteditor.warning";
+    private static final String infoType = "org.eclipse.ui.workbench.texteditor.info";
+
+    private final IAnnotationModel model;
+    private final IDocument document;
+    private final @Nullable IResource resource;
+    private final Map<MessageType, List<Annotation>> annotations = Maps.newEnumMap(MessageType.class);
+
+    private volatile Set<MessageType> shownTypes = ImmutableSet.of();
+
+
+    public MessageAnnotations(IAnnotationModel model, IDocument document, @Nullable IResource resource) {
+        this.model = model;
+        this.document = document;
+        this.resource = resource;
+    }
+
+
+    /**
+     * Replaces the annotations of given message type with annotations for given messages.
+     *
+     * @param type
+     *            Type of messages.
+     * @param messages
+     *            Messages to show.
+     * @param maxMessages
+     *            Maximum number of messages to show, remaining messages are stored in {@link OverflowMessages} and
+     *            summarized by a single annotation.
+     */
+    public void set(MessageType type, Iterable<? extends IMessage> messages, int maxMessages) {
+        final Map<Annotation, Position> added = Maps.newHashMap();
+        final List<IMessage> overflow = Lists.newArrayList();
+        for(IMessage message : messages) {
+            if(added.size() < maxMessages) {
+                added.put(new Annotation(type(message.severity()), false, message.message()), position(message));
+            } else {
+                overflow.add(message);
+            }
+        }
+        if(resource != null) {
+            OverflowMessages.replace(resource, type, overflow);
+        }
+        if(!overflow.isEmpty()) {
+            final String text = overflow.size() + " more messages are not shown"
+                + (resource != null ? "; see the Spoofax overflowed messages view" : "");
+            added.put(new Annotation(warningType, false, text), new Position(0, 0));
+        }
+
+        final List<Annotation> removed = annotations.put(type, Lists.newArrayList(added.keySet()));
+        replace(removed, added);
+
+        if(type != MessageType.INTERNAL && !shownTypes.contains(type)) {
+            shownTypes = ImmutableSet.<MessageType>builder().addAll(shownTypes).add(type).build();
+            if(resource != null && (type == MessageType.PARSER || type == MessageType.ANALYSIS)) {
+                deleteMarkers(resource, type);
+            }
+        }
+    }
+
+    /**
+     * Checks if given annotation is superseded by the messages shown by this object. Marker annotations of markers of a
+     * type that this object shows messages of are superseded, since they were created by an older build.
+     *
+     * @param annotation
+     *            Annotation to check.
+     * @return True if given annotation is superseded, false otherwise.
+     */
+    public boolean supersedes(Annotation annotation) {
+        final Set<MessageType> shownTypes = this.shownTypes;
+        if(shownTypes.isEmpty() || !(annotation instanceof MarkerAnnotation)) {
+            return false;
+        }
+        final IMarker marker = ((MarkerAnnotation) annotation).getMarker();
+        for(MessageType type : shownTypes) {
+            try {
+                if(marker.exists() && marker.isSubtypeOf(MarkerUtils.type(type))) {
+                    return true;
+                }
+            } catch(CoreException e) {
+                // Marker was deleted concurrently, ignore.
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Removes all annotations created by this object.
+     */
+    public void dispose() {
+        final List<Annotation> removed = Lists.newArrayList();
+        for(List<Annotation> typeAnnotations : annotations.values()) {
+            removed.addAll(typeAnnotations);
+        }
+        annotations.clear();
+        replace(removed, Maps.<Annotation, Position>newHashMap());
+        shownTypes = ImmutableSet.of();
+    }
+
+
+    /**
+     * Deletes the markers of given type from given resource in a workspace job, such that the main thread does not wait
+     * for builds. Overflowed messages are not removed, since they were just replaced by the messages of the editor.
+     */
+    private static void deleteMarkers(final IResource resource, MessageType type) {
+        final String markerType = MarkerUtils.type(type);
+        final WorkspaceJob job = new WorkspaceJob("Deleting outdated markers of " + resource.getName()) {
+            @Override public IStatus runInWorkspace(IProgressMonitor monitor) throws CoreException {
+                if(resource.exists()) {
+                    resource.deleteMarkers(markerType, true, IResource.DEPTH_ZERO);
+                }
+                return StatusUtils.success();
+            }
+        };
+        job.setRule(resource.getWorkspace().getRuleFactory().markerRule(resource));
+        job.setSystem(true);
+        job.schedule();
+    }
+
+    private void replace(@Nullable List<Annotation> removed, Map<Annotation, Position> added) {
+        final Annotation[] removedArray =
+            removed == null ? new Annotation[0] : removed.toArray(new Annotation[removed.size()]);
+        if(model instanceof IAnnotationModelExtension) {
+            // Replace all annotations at once, which results in a single model change and redraw.
+            ((IAnnotationModelExtension) model).replaceAnnotations(removedArray, added);
+            return;
+        }
+        for(Annotation annotation : removedArray) {
+            model.removeAnnotation(annotation);
+        }
+        for(Map.Entry<Annotation, Position> entry : added.entrySet()) {
+            model.addAnnotation(entry.getKey(), entry.getValue());
+        }
+    }
+
+    private Position position(IMessage message) {
+        final ISourceRegion region = message.region();
+        final int length = document.getLength();
+        if(region == null) {
+            return new Position(0, 0);
+        }
+        // Regions of outdated messages may lie outside of the document, which the annotation model does not accept.
+        final int start = Math.max(0, Math.min(length, region.startOffset()));
+        final int end = Math.max(start, Math.min(length, region.endOffset() + 1));
+        return new Position(start, end - start);
+    }
+
+    private static String type(MessageSeverity severity) {
+        switch(severity) {
+            case ERROR:
+                return errorType;
+            case WARNING:
+                return warningType;
+            case NOTE:
+            default:
+                return infoType;
+        }
+    }
+}
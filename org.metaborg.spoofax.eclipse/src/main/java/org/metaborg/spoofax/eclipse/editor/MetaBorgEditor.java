@@ -2,23 +2,30 @@ package org.metaborg.spoofax.eclipse.editor;
 
 import java.awt.Color;
 import java.util.Collection;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
 
 import org.apache.commons.lang3.ArrayUtils;
 import org.apache.commons.vfs2.FileObject;
 import org.eclipse.core.resources.IResource;
 import org.eclipse.core.resources.ResourcesPlugin;
 import org.eclipse.core.runtime.IProgressMonitor;
-import org.eclipse.core.runtime.jobs.IJobManager;
 import org.eclipse.core.runtime.jobs.ISchedulingRule;
 import org.eclipse.core.runtime.jobs.Job;
 import org.eclipse.core.runtime.jobs.MultiRule;
+import org.eclipse.jface.preference.IPreferenceStore;
 import org.eclipse.jface.text.DocumentEvent;
 import org.eclipse.jface.text.IDocument;
+import org.eclipse.jface.text.IDocumentExtension4;
 import org.eclipse.jface.text.IDocumentListener;
 import org.eclipse.jface.text.ITextOperationTarget;
 import org.eclipse.jface.text.ITextViewerExtension4;
 import org.eclipse.jface.text.TextPresentation;
 import org.eclipse.jface.text.source.DefaultCharacterPairMatcher;
+import org.eclipse.jface.text.source.Annotation;
+import org.eclipse.jface.text.source.IAnnotationModel;
 import org.eclipse.jface.text.source.ICharacterPairMatcher;
 import org.eclipse.jface.text.source.ISourceViewer;
 import org.eclipse.jface.text.source.ISourceViewerExtension2;
@@ -31,6 +38,8 @@ import org.eclipse.ui.IEditorInput;
 import org.eclipse.ui.IEditorPart;
 import org.eclipse.ui.IPropertyListener;
 import org.eclipse.ui.editors.text.TextEditor;
+import org.eclipse.ui.texteditor.IStatusField;
+import org.eclipse.ui.texteditor.IStatusFieldExtension;
 import org.eclipse.ui.texteditor.SourceViewerDecorationSupport;
 import org.eclipse.ui.views.contentoutline.IContentOutlinePage;
 import org.metaborg.core.analysis.IAnalysisService;
@@ -39,6 +48,8 @@ import org.metaborg.core.analysis.IAnalyzeUnitUpdate;
 import org.metaborg.core.context.IContextService;
 import org.metaborg.core.language.ILanguageIdentifierService;
 import org.metaborg.core.language.ILanguageImpl;
+import org.metaborg.core.messages.IMessage;
+import org.metaborg.core.messages.MessageType;
 import org.metaborg.core.outline.IOutline;
 import org.metaborg.core.outline.IOutlineService;
 import org.metaborg.core.processing.analyze.IAnalysisResultProcessor;
@@ -56,11 +67,16 @@ import org.metaborg.core.tracing.IResolverService;
 import org.metaborg.core.unit.IInputUnitService;
 import org.metaborg.spoofax.eclipse.SpoofaxPlugin;
 import org.metaborg.spoofax.eclipse.SpoofaxPreferences;
+import org.metaborg.spoofax.eclipse.editor.metrics.EditorMetrics;
+import org.metaborg.spoofax.eclipse.editor.metrics.EditorPhase;
+import org.metaborg.spoofax.eclipse.editor.metrics.UpdateTimings;
 import org.metaborg.spoofax.eclipse.editor.outline.SpoofaxOutlinePage;
 import org.metaborg.spoofax.eclipse.editor.outline.SpoofaxOutlinePopup;
 import org.metaborg.spoofax.eclipse.job.GlobalSchedulingRules;
+import org.metaborg.spoofax.eclipse.processing.ParseResultCache;
 import org.metaborg.spoofax.eclipse.resource.IEclipseResourceService;
 import org.metaborg.spoofax.eclipse.util.Nullable;
+import org.metaborg.spoofax.eclipse.util.SharedColors;
 import org.metaborg.spoofax.eclipse.util.StyleUtils;
 import org.metaborg.util.log.ILogger;
 import org.metaborg.util.log.LoggerUtils;
@@ -71,6 +87,7 @@ import com.google.inject.Injector;
 public abstract class MetaBorgEditor<I extends IInputUnit, P extends IParseUnit, A extends IAnalyzeUnit, AU extends IAnalyzeUnitUpdate, F>
     extends TextEditor implements IEclipseEditor<F> {
     private static final ILogger logger = LoggerUtils.logger(MetaBorgEditor.class);
+    private static final long maxTypingIntervalMs = 2000;
 
     protected IEclipseResourceService resourceService;
     protected ILanguageIdentifierService languageIdentifier;
@@ -89,18 +106,27 @@ public abstract class MetaBorgEditor<I extends IInputUnit, P extends IParseUnit,
 
     protected GlobalSchedulingRules globalRules;
     protected SpoofaxPreferences preferences;
+    protected EditorUpdateDelays delays;
+    protected EditorMetrics metrics;
+    protected ParseResultCache parseCache;
 
-    protected IJobManager jobManager;
+    protected volatile EditorUpdateJob<I, P, A, AU, F> updateJob;
 
     protected final IPropertyListener editorInputChangedListener;
+    protected final Runnable delayedUpdate;
     protected final PresentationMerger presentationMerger;
     protected final SpoofaxOutlinePage outlinePage;
+    protected final MovingAverage typingInterval;
+    protected final Map<EditorPhase, Long> latestTimings;
     protected SpoofaxOutlinePopup outlinePopup;
 
     protected DocumentListener documentListener;
     protected ISourceViewer sourceViewer;
     protected ISourceViewerExtension2 sourceViewerExt2;
     protected ITextViewerExtension4 textViewerExt4;
+    protected PresentationStreamer presentationStreamer;
+    protected volatile @Nullable MessageAnnotations messageAnnotations;
+    protected SharedColors.Lease colors;
 
     protected IEditorInput input;
     protected String inputName;
@@ -109,6 +135,13 @@ public abstract class MetaBorgEditor<I extends IInputUnit, P extends IParseUnit,
     protected @Nullable FileObject resource;
     protected ILanguageImpl language;
 
+    protected @Nullable DocumentEdit pendingEdit;
+    protected long lastEditTime;
+    protected volatile boolean visible = true;
+    protected volatile boolean active = false;
+    protected volatile boolean updateDeferred = false;
+    protected volatile boolean largeFile = false;
+
 
     public MetaBorgEditor() {
         /*
@@ -118,8 +151,11 @@ public abstract class MetaBorgEditor<I extends IInputUnit, P extends IParseUnit,
         super();
 
         this.editorInputChangedListener = new EditorInputChangedListener();
+        this.delayedUpdate = new DelayedUpdate();
         this.presentationMerger = new PresentationMerger();
         this.outlinePage = new SpoofaxOutlinePage(this);
+        this.typingInterval = new MovingAverage();
+        this.latestTimings = new EnumMap<>(EditorPhase.class);
     }
 
 
@@ -161,10 +197,11 @@ public abstract class MetaBorgEditor<I extends IInputUnit, P extends IParseUnit,
 
         final Display display = Display.getDefault();
         final TextPresentation blackPresentation =
-            StyleUtils.createTextPresentation(Color.BLACK, document.getLength(), display);
-        presentationMerger.invalidate();
+            StyleUtils.createTextPresentation(Color.BLACK, document.getLength(), colors);
         display.asyncExec(new Runnable() {
             @Override public void run() {
+                presentationMerger.invalidate();
+                presentationStreamer.cancel();
                 sourceViewer.changeTextPresentation(blackPresentation, true);
             }
         });
@@ -175,7 +212,7 @@ public abstract class MetaBorgEditor<I extends IInputUnit, P extends IParseUnit,
             return;
         }
         logger.debug("Force updating editor for {}", inputName);
-        scheduleJob(true);
+        scheduleJob(true, true);
     }
 
     @Override public void reconfigure() {
@@ -242,8 +279,12 @@ public abstract class MetaBorgEditor<I extends IInputUnit, P extends IParseUnit,
 
 
     @Override public boolean editorIsUpdating() {
-        final Job[] existingJobs = jobManager.find(this);
-        return existingJobs.length > 0;
+        final EditorUpdateJob<I, P, A, AU, F> job = updateJob;
+        if(job == null) {
+            return false;
+        }
+        final EditorAnalysisJob<P, A, AU> analysisJob = job.analysisJob();
+        return job.getState() != Job.NONE || (analysisJob != null && analysisJob.getState() != Job.NONE);
     }
 
 
@@ -256,11 +297,11 @@ public abstract class MetaBorgEditor<I extends IInputUnit, P extends IParseUnit,
     }
 
 
-    @Override public void setStyle(Iterable<IRegionStyle<F>> style, final String text, final IProgressMonitor monitor) {
+    @Override public void setStyle(Iterable<IRegionStyle<F>> style, final long documentStamp,
+        final IProgressMonitor monitor) {
         final Display display = Display.getDefault();
 
-        final TextPresentation textPresentation = StyleUtils.createTextPresentation(style, display);
-        presentationMerger.set(textPresentation);
+        final StyleBuffer styles = new StyleBuffer(style, colors);
 
         // Update styling on the main thread, required by Eclipse.
         display.asyncExec(new Runnable() {
@@ -268,15 +309,23 @@ public abstract class MetaBorgEditor<I extends IInputUnit, P extends IParseUnit,
                 if(monitor.isCanceled())
                     return;
                 // Also cancel if text presentation is not valid for current text any more.
-                if(document == null || !document.get().equals(text)) {
+                if(document == null || documentStamp() != documentStamp) {
                     return;
                 }
-                sourceViewer.changeTextPresentation(textPresentation, true);
+                // Styling of the viewer is unknown if it was repainted without our style ranges, restyle everything.
+                if(presentationMerger.takeMissed()) {
+                    presentationStreamer.cancel();
+                }
+                presentationMerger.set(styles);
+                // Apply the region that differs from the previous styling, the visible range first and the rest of the
+                // document in chunks, such that large documents are colored quickly where the user is looking.
+                presentationStreamer.start(styles, document.getLength());
             }
         });
     }
 
-    @Override public void setOutline(final IOutline outline, final IProgressMonitor monitor) {
+    @Override public void setOutline(final IOutline outline, final long documentStamp,
+        final IProgressMonitor monitor) {
         final Display display = Display.getDefault();
 
         // Update outline on the main thread, required by Eclipse.
@@ -284,6 +333,10 @@ public abstract class MetaBorgEditor<I extends IInputUnit, P extends IParseUnit,
             public void run() {
                 if(monitor.isCanceled())
                     return;
+                // Also cancel if outline is not valid for current text any more.
+                if(document == null || documentStamp() != documentStamp) {
+                    return;
+                }
                 outlinePage.update(outline);
                 outlinePopup.update(outline);
             }
@@ -291,11 +344,75 @@ public abstract class MetaBorgEditor<I extends IInputUnit, P extends IParseUnit,
     }
 
 
+    @Override public void setMessages(final MessageType type, Iterable<? extends IMessage> messages,
+        final int maxMessages, final IProgressMonitor monitor) {
+        final Display display = Display.getDefault();
+        final List<IMessage> messageList = Lists.newArrayList(messages);
+
+        // Update annotations on the main thread, required by Eclipse.
+        display.asyncExec(new Runnable() {
+            public void run() {
+                if(monitor.isCanceled())
+                    return;
+                final MessageAnnotations annotations = messageAnnotations();
+                if(annotations == null) {
+                    return;
+                }
+                annotations.set(type, messageList, maxMessages);
+            }
+        });
+    }
+
+    @Override public boolean supersedes(Annotation annotation) {
+        final MessageAnnotations annotations = messageAnnotations;
+        return annotations != null && annotations.supersedes(annotation);
+    }
+
+
+    @Override public void setUpdateTimings(final UpdateTimings timings) {
+        final Display display = Display.getDefault();
+        display.asyncExec(new Runnable() {
+            @Override public void run() {
+                latestTimings.putAll(timings.durations());
+                updateTimingsStatusField();
+            }
+        });
+    }
+
     @Override public void openQuickOutline() {
         outlinePopup.open();
     }
 
 
+    @Override public void setVisible(boolean visible) {
+        if(this.visible == visible) {
+            return;
+        }
+        this.visible = visible;
+        if(visible && updateDeferred && input != null && sourceViewer != null) {
+            logger.trace("Catching up on deferred update for {}", inputName);
+            scheduleJob(true);
+        }
+    }
+
+    @Override public void setActive(boolean active) {
+        this.active = active;
+        final EditorUpdateJob<I, P, A, AU, F> job = updateJob;
+        if(job != null) {
+            job.setActive(active);
+        }
+        if(active) {
+            // Status fields are shared between editors, show the state of this editor once it has received them.
+            Display.getDefault().asyncExec(new Runnable() {
+                @Override public void run() {
+                    updateTimingsStatusField();
+                    updateLargeFileStatusField();
+                }
+            });
+        }
+    }
+
+
     @Override protected void initializeEditor() {
         super.initializeEditor();
 
@@ -305,7 +422,6 @@ public abstract class MetaBorgEditor<I extends IInputUnit, P extends IParseUnit,
         final Injector injector = SpoofaxPlugin.injector();
         injectServices(injector);
         injectGenericServices(injector);
-        this.jobManager = Job.getJobManager();
 
         setDocumentProvider(new DocumentProvider(resourceService));
         setEditorContextMenuId("#SpoofaxEditorContext");
@@ -319,6 +435,9 @@ public abstract class MetaBorgEditor<I extends IInputUnit, P extends IParseUnit,
         this.projectService = injector.getInstance(IProjectService.class);
         this.globalRules = injector.getInstance(GlobalSchedulingRules.class);
         this.preferences = injector.getInstance(SpoofaxPreferences.class);
+        this.delays = injector.getInstance(EditorUpdateDelays.class);
+        this.metrics = injector.getInstance(EditorMetrics.class);
+        this.parseCache = injector.getInstance(ParseResultCache.class);
 
     }
 
@@ -367,6 +486,13 @@ public abstract class MetaBorgEditor<I extends IInputUnit, P extends IParseUnit,
         // sources, such as marker annotations.
         textViewerExt4.addTextPresentationListener(presentationMerger);
 
+        // Register for scrolling, to apply text presentation chunks that become visible first.
+        presentationStreamer = new PresentationStreamer(sourceViewer, Display.getDefault());
+        sourceViewer.addViewportListener(presentationStreamer);
+
+        // Share colors with other editors, released when this editor is disposed.
+        colors = SharedColors.of(Display.getDefault()).lease();
+
         // Create quick outline control.
         this.outlinePopup = new SpoofaxOutlinePopup(getSite().getShell(), this);
 
@@ -403,8 +529,16 @@ public abstract class MetaBorgEditor<I extends IInputUnit, P extends IParseUnit,
         EditorPreferences.setPairMatcherKeys(support);
     }
 
+    @Override protected void editorSaved() {
+        super.editorSaved();
+        // Saving counts as an explicit update, which gives large files an outline and analysis.
+        if(largeFile && enabled()) {
+            scheduleJob(true, true);
+        }
+    }
+
     @Override public void dispose() {
-        cancelJobs(input);
+        disposeUpdateJob();
 
         if(documentListener != null) {
             document.removeDocumentListener(documentListener);
@@ -413,6 +547,13 @@ public abstract class MetaBorgEditor<I extends IInputUnit, P extends IParseUnit,
         if(textViewerExt4 != null) {
             textViewerExt4.removeTextPresentationListener(presentationMerger);
         }
+        if(presentationStreamer != null) {
+            presentationStreamer.cancel();
+            if(sourceViewer != null) {
+                sourceViewer.removeViewportListener(presentationStreamer);
+            }
+        }
+        disposeMessageAnnotations();
 
         input = null;
         inputName = null;
@@ -422,9 +563,16 @@ public abstract class MetaBorgEditor<I extends IInputUnit, P extends IParseUnit,
         language = null;
         sourceViewer = null;
         textViewerExt4 = null;
+        presentationStreamer = null;
         documentListener = null;
+        pendingEdit = null;
 
         super.dispose();
+
+        // Release colors after the source viewer has been disposed, since it may still use them until then.
+        if(colors != null) {
+            colors.close();
+        }
     }
 
     /**
@@ -448,42 +596,193 @@ public abstract class MetaBorgEditor<I extends IInputUnit, P extends IParseUnit,
     }
 
     private void scheduleJob(boolean instantaneous) {
+        scheduleJob(instantaneous, false);
+    }
+
+    /**
+     * Schedules an update of the editor.
+     *
+     * @param instantaneous
+     *            Whether to update without delays.
+     * @param explicit
+     *            Whether the update was explicitly requested, or the document was saved. Large files are only fully
+     *            updated on explicit updates.
+     */
+    private void scheduleJob(boolean instantaneous, boolean explicit) {
         if(!checkInitialized() || resource == null) {
             return;
         }
 
-        cancelJobs(input);
-
-        // THREADING: invalidate text styling here on the main thread (instead of in the editor update job), to prevent
-        // race conditions.
-        presentationMerger.invalidate();
-        parseResultProcessor.invalidate(resource);
-        analysisResultProcessor.invalidate(resource);
-
-        final long analysisDelayMs = preferences.delayEditorAnalysis() ? 5000 : 500;
-        final boolean analysis = !preferences.disableEditorAnalysis();
-        final Job job = new EditorUpdateJob<>(resourceService, languageIdentifier, contextService, projectService,
-            unitService, syntaxService, analysisService, categorizerService, stylerService, outlineService,
-            parseResultProcessor, analysisResultProcessor, this, input, eclipseResource, resource, document.get(),
-            instantaneous, analysisDelayMs, analysis);
-        final ISchedulingRule rule;
-        if(eclipseResource == null) {
-            rule = new MultiRule(new ISchedulingRule[] { globalRules.startupReadLock() });
-        } else if(!analysis) {
-            rule = new MultiRule(new ISchedulingRule[] { globalRules.startupReadLock(), eclipseResource });
+        // Hidden editors skip updates, and catch up when they become visible again.
+        if(!visible) {
+            logger.trace("Deferring update for hidden editor {}", inputName);
+            updateDeferred = true;
+            return;
+        }
+        updateDeferred = false;
+
+        // Analysis only works with a project context, which is unavailable when the eclipse resource is null.
+        final boolean analysis = !preferences.disableEditorAnalysis() && eclipseResource != null;
+        if(updateJob == null || (updateJob.analysisJob() != null) != analysis) {
+            // Analysis stage is created or removed when analysis is toggled, create a new update job.
+            disposeUpdateJob();
+            updateJob = createUpdateJob(analysis);
+            updateJob.setActive(active);
+        }
+
+        // Take a single snapshot of the text for this update, together with the modification stamp which is used to
+        // cheaply check if results are still valid for the current text.
+        final String text = document.get();
+        final long documentStamp = documentStamp();
+        final IPreferenceStore store = getPreferenceStore();
+        // Large files are updated in a degraded mode, without outline and analysis unless explicitly requested.
+        setLargeFile(EditorPreferences.largeFile(store, text.length(), document.getNumberOfLines()));
+        final boolean degraded = largeFile && !explicit;
+        // Delays are chosen by the job from measured durations and the typing cadence, within configured bounds.
+        final DelayBounds parseMessagesDelayBounds = EditorPreferences.parseMessagesDelayBounds(store);
+        final DelayBounds configuredAnalysisDelayBounds = EditorPreferences.analysisDelayBounds(store);
+        final DelayBounds analysisDelayBounds = preferences.delayEditorAnalysis()
+            ? new DelayBounds(configuredAnalysisDelayBounds.maxMs, configuredAnalysisDelayBounds.maxMs)
+            : configuredAnalysisDelayBounds;
+        final EditorUpdateRequest request = new EditorUpdateRequest(document, text, documentStamp,
+            instantaneous, typingInterval.get(), parseMessagesDelayBounds, analysisDelayBounds, degraded);
+        pendingEdit = null;
+
+        final boolean first = updateJob.request(request, 0);
+        if(first) {
+            // THREADING: invalidate results here on the main thread (instead of in the editor update job), to prevent
+            // race conditions. Only invalidate once for requests that are coalesced into a single update. The styling
+            // is kept, the presentation merger shifts it over edits until the new styling is set.
+            parseResultProcessor.invalidate(resource);
+            analysisResultProcessor.invalidate(resource);
+        }
+    }
+
+    /**
+     * Schedules an update after given delay, on the main thread. Rescheduling before the delay has passed restarts the
+     * delay, such that the text is only copied once when the user stops typing.
+     */
+    private void scheduleDelayedUpdate(final int delayMs) {
+        final Display display = Display.getDefault();
+        if(Display.getCurrent() == display) {
+            display.timerExec(delayMs, delayedUpdate);
         } else {
-            rule = new MultiRule(new ISchedulingRule[] { globalRules.startupReadLock(), globalRules.strategoLock(),
-                eclipseResource.getProject() });
+            display.asyncExec(new Runnable() {
+                @Override public void run() {
+                    display.timerExec(delayMs, delayedUpdate);
+                }
+            });
+        }
+    }
+
+    private void setLargeFile(boolean largeFile) {
+        if(this.largeFile == largeFile) {
+            return;
+        }
+        this.largeFile = largeFile;
+        if(largeFile) {
+            logger.info("{} exceeds the large file thresholds, updating the editor in large file mode", inputName);
+        }
+        Display.getDefault().asyncExec(new Runnable() {
+            @Override public void run() {
+                updateLargeFileStatusField();
+            }
+        });
+    }
+
+    private void updateLargeFileStatusField() {
+        final IStatusField field = getStatusField(SpoofaxEditorActionContributor.largeFileCategory);
+        if(field == null) {
+            return;
+        }
+        field.setText(largeFile ? "Large file mode" : "");
+        if(field instanceof IStatusFieldExtension) {
+            ((IStatusFieldExtension) field).setToolTipText(
+                largeFile ? "Outline and analysis are only updated on save or explicit update" : null);
         }
-        job.setRule(rule);
-        job.schedule(instantaneous ? 0 : 300);
     }
 
-    private void cancelJobs(IEditorInput specificInput) {
-        logger.trace("Cancelling editor update jobs for {}", specificInput);
-        final Job[] existingJobs = jobManager.find(specificInput);
-        for(Job job : existingJobs) {
-            job.cancel();
+    private void updateTimingsStatusField() {
+        final IStatusField field = getStatusField(SpoofaxEditorActionContributor.timingsCategory);
+        if(field == null) {
+            return;
+        }
+        // Show the time spent on the latest update, excluding the time spent waiting for typing to stop.
+        long update = 0;
+        long analysis = 0;
+        final StringBuilder details = new StringBuilder();
+        for(Entry<EditorPhase, Long> entry : latestTimings.entrySet()) {
+            final EditorPhase phase = entry.getKey();
+            final long duration = entry.getValue();
+            if(phase == EditorPhase.ANALYZE || phase == EditorPhase.ANALYSIS_MESSAGES) {
+                analysis += duration;
+            } else if(phase != EditorPhase.WAIT) {
+                update += duration;
+            }
+            details.append(phase.displayName + ": " + duration + "ms\n");
+        }
+        field.setText(latestTimings.isEmpty() ? "" : "Update " + update + "ms, analysis " + analysis + "ms");
+        if(field instanceof IStatusFieldExtension) {
+            ((IStatusFieldExtension) field).setToolTipText(details.toString().trim());
+        }
+    }
+
+    private long documentStamp() {
+        if(document instanceof IDocumentExtension4) {
+            return ((IDocumentExtension4) document).getModificationStamp();
+        }
+        return IDocumentExtension4.UNKNOWN_MODIFICATION_STAMP;
+    }
+
+    private EditorUpdateJob<I, P, A, AU, F> createUpdateJob(boolean analysis) {
+        final EditorAnalysisJob<P, A, AU> analysisJob;
+        if(analysis) {
+            // Only the analysis stage requires the project and Stratego rules, and since it is scheduled with the
+            // analysis delay, it does not hold on to these rules while waiting for the user to stop typing.
+            analysisJob = new EditorAnalysisJob<>(resourceService, contextService, analysisService,
+                analysisResultProcessor, delays, metrics, this, input, eclipseResource,
+                resource);
+            analysisJob.setRule(new MultiRule(new ISchedulingRule[] { globalRules.startupReadLock(),
+                globalRules.strategoLock(), eclipseResource.getProject() }));
+        } else {
+            analysisJob = null;
+        }
+
+        final EditorUpdateJob<I, P, A, AU, F> job = new EditorUpdateJob<>(languageIdentifier, projectService,
+            unitService, syntaxService, categorizerService, stylerService, outlineService, parseResultProcessor,
+            parseCache, delays, metrics, this, input, eclipseResource, resource, analysisJob);
+        // Messages are shown as annotations instead of markers, so the update job does not require a rule on the
+        // edited file, and does not wait for builds that hold the project.
+        job.setRule(new MultiRule(new ISchedulingRule[] { globalRules.startupReadLock() }));
+        return job;
+    }
+
+    /**
+     * @return Message annotations for the annotation model of the current input, or null if the input has no
+     *         annotation model. Must be called from the main thread.
+     */
+    private @Nullable MessageAnnotations messageAnnotations() {
+        if(messageAnnotations == null && input != null && document != null) {
+            final IAnnotationModel annotationModel = getDocumentProvider().getAnnotationModel(input);
+            if(annotationModel != null) {
+                messageAnnotations = new MessageAnnotations(annotationModel, document, eclipseResource);
+            }
+        }
+        return messageAnnotations;
+    }
+
+    private void disposeMessageAnnotations() {
+        if(messageAnnotations != null) {
+            messageAnnotations.dispose();
+            messageAnnotations = null;
+        }
+    }
+
+    private void disposeUpdateJob() {
+        if(updateJob != null) {
+            logger.trace("Cancelling editor update job for {}", inputName);
+            updateJob.dispose();
+            updateJob = null;
         }
     }
 
@@ -503,6 +802,12 @@ public abstract class MetaBorgEditor<I extends IInputUnit, P extends IParseUnit,
         documentListener = new DocumentListener();
         document.addDocumentListener(documentListener);
 
+        // Remove annotations from the annotation model of the old input.
+        disposeMessageAnnotations();
+
+        // Forget the pending edit, it belongs to the old input.
+        pendingEdit = null;
+
         // Store new resource, because these may have changed as a result of the input change.
         resource = resourceService.resolve(input);
         if(resource != null) {
@@ -516,7 +821,8 @@ public abstract class MetaBorgEditor<I extends IInputUnit, P extends IParseUnit,
         // Reconfigure the editor because the language may have changed.
         reconfigure();
 
-        cancelJobs(oldInput);
+        // Update job is bound to the old input and resource, create a new one.
+        disposeUpdateJob();
         scheduleJob(true);
     }
 
@@ -526,6 +832,45 @@ public abstract class MetaBorgEditor<I extends IInputUnit, P extends IParseUnit,
         }
 
         @Override public void documentChanged(DocumentEvent event) {
+            // THREADING: shift text styling immediately, since the current style ranges do not match the new text.
+            final DocumentEdit edit = DocumentEdit.of(event);
+            presentationMerger.edited(edit);
+            if(presentationStreamer != null) {
+                presentationStreamer.edited(edit);
+            }
+
+            // Pauses between bursts of typing do not count towards the typing cadence.
+            final long time = System.currentTimeMillis();
+            if(time - lastEditTime < maxTypingIntervalMs) {
+                typingInterval.add(time - lastEditTime);
+            }
+            lastEditTime = time;
+
+            if(pendingEdit == null) {
+                pendingEdit = edit;
+                // Invalidate results once for all edits before the next update, such that requesters wait for the
+                // result of that update.
+                if(resource != null) {
+                    parseResultProcessor.invalidate(resource);
+                    analysisResultProcessor.invalidate(resource);
+                }
+            } else {
+                pendingEdit = pendingEdit.merge(edit);
+            }
+            final EditorUpdateJob<I, P, A, AU, F> job = updateJob;
+            if(job != null) {
+                job.markStale();
+            }
+            scheduleDelayedUpdate(300);
+        }
+    }
+
+    private final class DelayedUpdate implements Runnable {
+        @Override public void run() {
+            // Skip if the editor was disabled or disposed, or if an instantaneous update already took the edits.
+            if(!enabled() || pendingEdit == null) {
+                return;
+            }
             scheduleJob(false);
         }
     }
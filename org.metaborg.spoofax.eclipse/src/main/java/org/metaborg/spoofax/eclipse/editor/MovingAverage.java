@@ -0,0 +1,45 @@
+package org.metaborg.spoofax.eclipse.editor;
+
+/**
+ * Exponential moving average of durations, which favors recent samples such that it adapts to changes in cost, for
+ * example when a file grows.
+ */
+public class MovingAverage {
+    private static final double weight = 0.3;
+
+    private double average;
+    private boolean empty = true;
+
+
+    /**
+     * Adds a sample to the average.
+     *
+     * @param sample
+     *            Sample to add.
+     */
+    public synchronized void add(long sample) {
+        if(empty) {
+            average = sample;
+            empty = false;
+        } else {
+            average = weight * sample + (1 - weight) * average;
+        }
+    }
+
+    /**
+     * @return Current average, or -1 if no samples have been added yet.
+     */
+    public synchronized long get() {
+        if(empty) {
+            return -1;
+        }
+        return Math.round(average);
+    }
+
+    /**
+     * Removes all samples.
+     */
+    public synchronized void reset() {
+        empty = true;
+    }
+}
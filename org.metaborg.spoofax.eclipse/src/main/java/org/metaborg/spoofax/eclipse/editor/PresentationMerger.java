@@ -1,46 +1,106 @@
 package org.metaborg.spoofax.eclipse.editor;
 
-import java.util.Collection;
-
 import org.eclipse.jface.text.IRegion;
 import org.eclipse.jface.text.ITextPresentationListener;
 import org.eclipse.jface.text.TextPresentation;
-import org.eclipse.swt.custom.StyleRange;
-import org.metaborg.spoofax.eclipse.util.StyleUtils;
+import org.metaborg.spoofax.eclipse.util.Nullable;
 
+/**
+ * Merges the most recent styling into text presentations that are created by the viewer, for example when it repaints
+ * a region. Edits made after the styling was set are tracked, such that style regions after an edit are shifted to the
+ * edited text, and only style regions that intersect with an edit are dropped until the next styling is set.
+ *
+ * THREADING: all methods must be called from the main thread.
+ */
 public class PresentationMerger implements ITextPresentationListener {
-    private volatile TextPresentation sourcePresentation;
-    private volatile Collection<StyleRange> styleRanges;
+    private @Nullable StyleBuffer styles;
+    private @Nullable DocumentEdit edit;
+    private boolean missed;
+
 
+    /**
+     * Sets the styling of the current text.
+     */
+    public void set(StyleBuffer styles) {
+        this.styles = styles;
+        this.edit = null;
+    }
 
-    public void set(TextPresentation presentation) {
-        // Make a deep copy of style ranges to prevent sharing with other ITextPresentationListeners.
-        styleRanges = StyleUtils.deepCopies(presentation);
-        sourcePresentation = presentation;
+    /**
+     * Notifies that the document was edited after the styling was set.
+     */
+    public void edited(DocumentEdit edit) {
+        if(styles == null) {
+            return;
+        }
+        this.edit = this.edit == null ? edit : this.edit.merge(edit);
     }
 
+    /**
+     * Removes the styling, for example because the viewer is styled by someone else.
+     */
     public void invalidate() {
-        sourcePresentation = null;
-        styleRanges = null;
+        styles = null;
+        edit = null;
+    }
+
+    /**
+     * @return True if the text presentation of the viewer was changed while no styling was set since the last call, in
+     *         which case parts of the viewer may have lost their styling.
+     */
+    public boolean takeMissed() {
+        final boolean missed = this.missed;
+        this.missed = false;
+        return missed;
     }
 
 
     @Override public void applyTextPresentation(TextPresentation targetPresentation) {
-        // No need to apply text presentation if source and target presentation are the same object.
-        if(sourcePresentation == null || targetPresentation == sourcePresentation) {
+        final StyleBuffer styles = this.styles;
+        if(styles == null) {
+            missed = true;
             return;
         }
 
         final IRegion extent = targetPresentation.getExtent();
         final int min = extent.getOffset();
         final int max = min + extent.getLength();
-        for(StyleRange styleRange : styleRanges) {
-            final int styleRangeEnd = styleRange.start + styleRange.length;
+        // Edited region in the text before the edit, and the end of the inserted text in the text after the edit.
+        final int editStart = edit != null ? edit.offset : Integer.MAX_VALUE;
+        final int editEnd = edit != null ? edit.offset + edit.removedLength : Integer.MAX_VALUE;
+        final int insertedEnd = edit != null ? edit.offset + edit.insertedLength : Integer.MAX_VALUE;
+        final int delta = edit != null ? edit.delta() : 0;
+        // Offset of the extent in the text before the edit.
+        final int previousMin;
+        if(min < editStart) {
+            previousMin = min;
+        } else if(min >= insertedEnd) {
+            previousMin = min - delta;
+        } else {
+            previousMin = editStart;
+        }
+
+        // Only visit style regions that intersect with the extent, using binary search to find the first one.
+        for(int i = styles.firstEndingAfter(previousMin); i < styles.size(); ++i) {
+            final int shift;
+            if(styles.end(i) <= editStart) {
+                shift = 0;
+            } else if(styles.start(i) >= editEnd) {
+                shift = delta;
+            } else {
+                // Style region intersects with the edit, its styling is unknown until the next styling is set.
+                continue;
+            }
+            final int start = styles.start(i) + shift;
+            if(start >= max) {
+                break;
+            }
             // Not allowed to change style ranges outside of extent. Safe to skip since they will not be redrawn.
-            if(styleRange.start < min || styleRangeEnd > max) {
+            if(start < min || styles.end(i) + shift > max) {
                 continue;
             }
-            targetPresentation.mergeStyleRange(styleRange);
+            // Create new style ranges to prevent sharing with other ITextPresentationListeners.
+            targetPresentation.mergeStyleRange(styles.create(i, shift, min, max));
         }
     }
 }
@@ -0,0 +1,283 @@
+package org.metaborg.spoofax.eclipse.editor;
+
+import org.eclipse.jface.text.IViewportListener;
+import org.eclipse.jface.text.Region;
+import org.eclipse.jface.text.TextPresentation;
+import org.eclipse.jface.text.source.ISourceViewer;
+import org.eclipse.swt.custom.StyleRange;
+import org.eclipse.swt.widgets.Display;
+import org.metaborg.spoofax.eclipse.util.Nullable;
+
+import com.google.common.base.Objects;
+
+/**
+ * Applies the styling of a document to a source viewer in chunks, starting with the chunks in the visible range,
+ * followed by the remaining chunks in order of distance to the visible range. Each chunk is applied in a separate
+ * runnable on the main thread, such that input events are processed in between chunks. Scrolling restarts the order
+ * from the new visible range, and {@link #cancel()} drops the chunks that have not been applied yet. Style ranges are
+ * only created for the chunk that is being applied.
+ *
+ * Once a styling has been applied completely, the next styling is diffed against it, taking into account the edits
+ * reported through {@link #edited(DocumentEdit)}. Only the region that differs is applied, such that small edits do not
+ * restyle and redraw the entire document.
+ *
+ * THREADING: all methods must be called from the main thread.
+ */
+public class PresentationStreamer implements IViewportListener {
+    private static final int chunkSize = 32 * 1024;
+
+    private final ISourceViewer sourceViewer;
+    private final Display display;
+
+    private int generation;
+    private @Nullable StyleBuffer styles;
+    private int documentLength;
+    private int regionStart;
+    private int regionEnd;
+    private boolean[] applied;
+    private int visibleStart;
+    private int visibleEnd;
+    private int above;
+    private int below;
+
+    private @Nullable StyleBuffer completedStyles;
+    private @Nullable DocumentEdit completedEdit;
+
+
+    public PresentationStreamer(ISourceViewer sourceViewer, Display display) {
+        this.sourceViewer = sourceViewer;
+        this.display = display;
+    }
+
+
+    /**
+     * Starts applying given styling, cancelling the application of a previous styling. If the previous styling was
+     * applied completely, only the region that differs from it is applied.
+     *
+     * @param styles
+     *            Styling to apply.
+     * @param documentLength
+     *            Length of the document the styling is for.
+     */
+    public void start(StyleBuffer styles, int documentLength) {
+        if(completedStyles != null && Objects.equal(completedStyles.defaultForeground(), styles.defaultForeground())) {
+            final Region damaged = damage(completedStyles, completedEdit, styles, documentLength);
+            regionStart = damaged.getOffset();
+            regionEnd = damaged.getOffset() + damaged.getLength();
+        } else {
+            regionStart = 0;
+            regionEnd = documentLength;
+        }
+
+        stop();
+        completedStyles = null;
+        completedEdit = null;
+        this.styles = styles;
+        this.documentLength = documentLength;
+        this.applied = new boolean[Math.max(1, (documentLength + chunkSize - 1) / chunkSize)];
+        if(regionStart >= regionEnd) {
+            complete();
+            return;
+        }
+        // Chunks outside of the damaged region do not have to be applied.
+        for(int chunk = 0; chunk < applied.length; ++chunk) {
+            applied[chunk] = (chunk + 1) * chunkSize <= regionStart || chunk * chunkSize >= regionEnd;
+        }
+
+        applyVisible();
+        if(allApplied()) {
+            complete();
+        } else {
+            scheduleNext(generation);
+        }
+    }
+
+    /**
+     * Notifies that the document was edited, which drops the chunks that have not been applied yet. Edits made after
+     * a styling was applied completely are tracked, such that the next styling restyles the edited region.
+     *
+     * @param edit
+     *            Edit made to the document.
+     */
+    public void edited(DocumentEdit edit) {
+        stop();
+        if(completedStyles != null) {
+            completedEdit = completedEdit == null ? edit : completedEdit.merge(edit);
+        }
+    }
+
+    /**
+     * Cancels applying chunks that have not been applied yet, and forgets the previously applied styling, for example
+     * because the text presentation of the source viewer was changed by someone else.
+     */
+    public void cancel() {
+        stop();
+        completedStyles = null;
+        completedEdit = null;
+    }
+
+
+    @Override public void viewportChanged(int verticalOffset) {
+        if(styles == null) {
+            return;
+        }
+        // Apply newly visible chunks immediately, and restart applying the remaining chunks from the new visible range.
+        ++generation;
+        applyVisible();
+        scheduleNext(generation);
+    }
+
+
+    /**
+     * Computes the region of the document where given new styling differs from the styling in the source viewer, which
+     * is the previous styling with the edited region removed.
+     *
+     * @param previous
+     *            Styling that was applied to the source viewer.
+     * @param edit
+     *            Edits made after the previous styling was applied, or null if there were none.
+     * @param next
+     *            New styling.
+     * @param documentLength
+     *            Length of the document the new styling is for.
+     * @return Damaged region, which is empty if the stylings do not differ.
+     */
+    static Region damage(StyleBuffer previous, @Nullable DocumentEdit edit, StyleBuffer next, int documentLength) {
+        // The edited region has lost its styling in the source viewer, so it is always damaged.
+        int start = edit != null ? edit.offset : documentLength;
+        int end = edit != null ? edit.offset + edit.insertedLength : 0;
+        final int previousEditEnd = edit != null ? edit.offset + edit.removedLength : 0;
+        final int delta = edit != null ? edit.delta() : 0;
+
+        // Skip the equal style regions before the edit.
+        int first = 0;
+        while(first < previous.size() && first < next.size() && next.end(first) <= start
+            && same(previous, first, next, first, 0)) {
+            ++first;
+        }
+        if(first < previous.size()) {
+            start = Math.min(start, previous.start(first));
+        }
+        if(first < next.size()) {
+            start = Math.min(start, next.start(first));
+        }
+
+        // Skip the equal style regions after the edit, where regions of the previous text are shifted by the edit.
+        int lastPrevious = previous.size() - 1;
+        int lastNext = next.size() - 1;
+        while(lastPrevious >= first && lastNext >= first && previous.start(lastPrevious) >= previousEditEnd
+            && same(previous, lastPrevious, next, lastNext, delta)) {
+            --lastPrevious;
+            --lastNext;
+        }
+        if(lastPrevious >= first) {
+            end = Math.max(end, previous.end(lastPrevious) + delta);
+        }
+        if(lastNext >= first) {
+            end = Math.max(end, next.end(lastNext));
+        }
+
+        final int damagedStart = Math.max(0, start);
+        final int damagedEnd = Math.min(documentLength, end);
+        return new Region(damagedStart, Math.max(0, damagedEnd - damagedStart));
+    }
+
+    private static boolean same(StyleBuffer previous, int previousIndex, StyleBuffer next, int nextIndex, int delta) {
+        return previous.start(previousIndex) + delta == next.start(nextIndex)
+            && previous.length(previousIndex) == next.length(nextIndex)
+            && previous.sameStyle(previousIndex, next, nextIndex);
+    }
+
+    private void stop() {
+        ++generation;
+        styles = null;
+        applied = null;
+    }
+
+    private void complete() {
+        completedStyles = styles;
+        completedEdit = null;
+        stop();
+    }
+
+    private boolean allApplied() {
+        for(boolean chunkApplied : applied) {
+            if(!chunkApplied) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void applyVisible() {
+        final int top = Math.max(0, Math.min(documentLength, sourceViewer.getTopIndexStartOffset()));
+        final int bottom = Math.max(top, Math.min(documentLength, sourceViewer.getBottomIndexEndOffset()));
+        visibleStart = Math.min(applied.length - 1, top / chunkSize);
+        visibleEnd = Math.min(applied.length - 1, bottom / chunkSize);
+        above = visibleStart - 1;
+        below = visibleEnd + 1;
+
+        boolean allApplied = true;
+        for(int chunk = visibleStart; chunk <= visibleEnd; ++chunk) {
+            allApplied &= applied[chunk];
+        }
+        if(!allApplied) {
+            apply(visibleStart, visibleEnd);
+        }
+    }
+
+    private void scheduleNext(final int scheduledGeneration) {
+        display.asyncExec(new Runnable() {
+            @Override public void run() {
+                if(scheduledGeneration != generation || sourceViewer.getTextWidget() == null) {
+                    return;
+                }
+                final int chunk = nextChunk();
+                if(chunk < 0) {
+                    complete();
+                    return;
+                }
+                apply(chunk, chunk);
+                scheduleNext(scheduledGeneration);
+            }
+        });
+    }
+
+    /**
+     * @return Closest chunk to the visible range that has not been applied yet, or -1 if all chunks have been applied.
+     */
+    private int nextChunk() {
+        while(below < applied.length || above >= 0) {
+            final boolean takeBelow =
+                above < 0 || (below < applied.length && below - visibleEnd <= visibleStart - above);
+            final int chunk = takeBelow ? below++ : above--;
+            if(!applied[chunk]) {
+                return chunk;
+            }
+        }
+        return -1;
+    }
+
+    private void apply(int firstChunk, int lastChunk) {
+        // Only apply the damaged region of the chunks.
+        final int start = Math.max(regionStart, firstChunk * chunkSize);
+        final int end = Math.min(regionEnd, Math.min(documentLength, (lastChunk + 1) * chunkSize));
+        if(start < end) {
+            final TextPresentation presentation = new TextPresentation(new Region(start, end - start), 64);
+            final StyleRange defaultStyleRange = new StyleRange(start, end - start, styles.defaultForeground(), null);
+            presentation.setDefaultStyleRange(defaultStyleRange);
+            for(int i = styles.firstEndingAfter(start); i < styles.size(); ++i) {
+                if(styles.start(i) >= end) {
+                    break;
+                }
+                // Clip style regions that cross chunk boundaries.
+                presentation.addStyleRange(styles.create(i, start, end));
+            }
+            sourceViewer.changeTextPresentation(presentation, true);
+        }
+
+        for(int chunk = firstChunk; chunk <= lastChunk; ++chunk) {
+            applied[chunk] = true;
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package org.metaborg.spoofax.eclipse.editor;
+
+import org.eclipse.jface.action.IStatusLineManager;
+import org.eclipse.ui.IEditorPart;
+import org.eclipse.ui.texteditor.BasicTextEditorActionContributor;
+import org.eclipse.ui.texteditor.ITextEditorExtension;
+import org.eclipse.ui.texteditor.StatusLineContributionItem;
+
+/**
+ * Action contributor for Spoofax editors, which adds status line fields that show the durations of the latest editor
+ * update, and whether the editor is in large file mode.
+ */
+public class SpoofaxEditorActionContributor extends BasicTextEditorActionContributor {
+    public static final String timingsCategory = SpoofaxEditor.id + ".status.timings";
+    public static final String largeFileCategory = SpoofaxEditor.id + ".status.largefile";
+
+    private final StatusLineContributionItem timingsItem;
+    private final StatusLineContributionItem largeFileItem;
+    private IEditorPart activeEditor;
+
+
+    public SpoofaxEditorActionContributor() {
+        this.timingsItem = new StatusLineContributionItem(timingsCategory, true, 32);
+        this.largeFileItem = new StatusLineContributionItem(largeFileCategory, true, 16);
+    }
+
+
+    @Override public void contributeToStatusLine(IStatusLineManager statusLineManager) {
+        super.contributeToStatusLine(statusLineManager);
+        statusLineManager.add(largeFileItem);
+        statusLineManager.add(timingsItem);
+    }
+
+    @Override public void setActiveEditor(IEditorPart part) {
+        super.setActiveEditor(part);
+        // Only the active editor may show its state in the shared status line fields.
+        if(activeEditor instanceof ITextEditorExtension) {
+            final ITextEditorExtension extension = (ITextEditorExtension) activeEditor;
+            extension.setStatusField(null, timingsCategory);
+            extension.setStatusField(null, largeFileCategory);
+        }
+        activeEditor = part;
+        if(part instanceof ITextEditorExtension) {
+            final ITextEditorExtension extension = (ITextEditorExtension) part;
+            extension.setStatusField(timingsItem, timingsCategory);
+            extension.setStatusField(largeFileItem, largeFileCategory);
+        }
+    }
+}
@@ -64,6 +64,7 @@ import org.metaborg.spoofax.core.unit.ISpoofaxInputUnit;
 import org.metaborg.spoofax.core.unit.ISpoofaxInputUnitService;
 import org.metaborg.spoofax.core.unit.ISpoofaxParseUnit;
 import org.metaborg.spoofax.eclipse.SpoofaxPlugin;
+import org.metaborg.spoofax.eclipse.util.SharedColors;
 import org.metaborg.spoofax.eclipse.util.StyleUtils;
 import org.spoofax.interpreter.terms.IStrategoTerm;
 
@@ -101,6 +102,8 @@ class SpoofaxInformationControl implements IInformationControl, IInformationCont
      * @since 3.6
      */
     private Color fStatusTextForegroundColor;
+    /** Shared colors used by this control, released when the control is disposed. */
+    private SharedColors.Lease fColors;
     /** The maximal widget width. */
     private int fMaxWidth;
     /** The maximal widget height. */
@@ -149,6 +152,7 @@ class SpoofaxInformationControl implements IInformationControl, IInformationCont
 
         fShell = new Shell(parent, SWT.NO_FOCUS | SWT.ON_TOP | shellStyle);
         Display display = fShell.getDisplay();
+        fColors = SharedColors.of(display).lease();
 
         Composite composite = fShell;
         layout = new GridLayout(1, false);
@@ -179,7 +183,7 @@ class SpoofaxInformationControl implements IInformationControl, IInformationCont
         gd = new GridData(GridData.BEGINNING | GridData.FILL_BOTH);
         fText.setLayoutData(gd);
         fText.setForeground(parent.getDisplay().getSystemColor(SWT.COLOR_INFO_FOREGROUND));
-        fText.setBackground(new Color(display, new RGB(246, 246, 246)));
+        fText.setBackground(fColors.get(new RGB(246, 246, 246)));
         // fSymbolicFontName= symbolicFontName;
 
         fTextFont = JFaceResources.getFont(JFaceResources.TEXT_FONT);
@@ -217,9 +221,8 @@ class SpoofaxInformationControl implements IInformationControl, IInformationCont
                     | GridData.VERTICAL_ALIGN_BEGINNING);
             fStatusField.setLayoutData(gd2);
 
-            fStatusTextForegroundColor =
-                new Color(fStatusField.getDisplay(), blend(display.getSystemColor(SWT.COLOR_INFO_BACKGROUND).getRGB(),
-                    display.getSystemColor(SWT.COLOR_INFO_FOREGROUND).getRGB(), 0.56f));
+            fStatusTextForegroundColor = fColors.get(blend(display.getSystemColor(SWT.COLOR_INFO_BACKGROUND).getRGB(),
+                display.getSystemColor(SWT.COLOR_INFO_FOREGROUND).getRGB(), 0.56f));
             fStatusField.setForeground(fStatusTextForegroundColor);
 
             fStatusField.setBackground(display.getSystemColor(SWT.COLOR_INFO_BACKGROUND));
@@ -297,19 +300,17 @@ class SpoofaxInformationControl implements IInformationControl, IInformationCont
         final Iterable<IRegionStyle<IStrategoTerm>> styles = styler.styleParsed(language, categories);
 
 
-        final Display display = Display.getDefault();
-
-        final TextPresentation textPresentation = StyleUtils.createTextPresentation(styles, display);
+        final TextPresentation textPresentation = StyleUtils.createTextPresentation(styles, fColors);
 
         IDocument doc = new Document(additionalInfo);
         fViewer.setInput(doc);
         fViewer.changeTextPresentation(textPresentation, true);
 
-        setColorPrefixSuffix(display, input);
+        setColorPrefixSuffix(input);
 
     }
 
-    private void setColorPrefixSuffix(Display display, ICompletion input) {
+    private void setColorPrefixSuffix(ICompletion input) {
 
         SourceRegion prefixRegion = calculateRegionPrefix(input);
         SourceRegion suffixRegion = calculateRegionSuffix(input);
@@ -324,14 +325,14 @@ class SpoofaxInformationControl implements IInformationControl, IInformationCont
         if(prefixRegion != null) {
             RegionStyle<IStrategoTerm> prefixRegionStyle = new RegionStyle<IStrategoTerm>(prefixRegion, style, null);
             stylesPrefixSuffix.add(prefixRegionStyle);
-            final TextPresentation textPresentation = StyleUtils.createTextPresentation(stylesPrefixSuffix, display);
+            final TextPresentation textPresentation = StyleUtils.createTextPresentation(stylesPrefixSuffix, fColors);
             fViewer.changeTextPresentation(textPresentation, true);
             stylesPrefixSuffix.clear();
         }
         if(suffixRegion != null) {
             RegionStyle<IStrategoTerm> suffixRegionStyle = new RegionStyle<IStrategoTerm>(suffixRegion, style, null);
             stylesPrefixSuffix.add(suffixRegionStyle);
-            final TextPresentation textPresentation = StyleUtils.createTextPresentation(stylesPrefixSuffix, display);
+            final TextPresentation textPresentation = StyleUtils.createTextPresentation(stylesPrefixSuffix, fColors);
             fViewer.changeTextPresentation(textPresentation, true);
         }
     }
@@ -443,9 +444,10 @@ class SpoofaxInformationControl implements IInformationControl, IInformationCont
         if(fStatusTextFont != null && !fStatusTextFont.isDisposed())
             fStatusTextFont.dispose();
         fStatusTextFont = null;
-        if(fStatusTextForegroundColor != null && !fStatusTextForegroundColor.isDisposed())
-            fStatusTextForegroundColor.dispose();
         fStatusTextForegroundColor = null;
+        if(fColors != null)
+            fColors.close();
+        fColors = null;
 
         fTextFont = null;
         fShell = null;
@@ -0,0 +1,280 @@
+package org.metaborg.spoofax.eclipse.editor;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.custom.StyleRange;
+import org.eclipse.swt.graphics.Color;
+import org.metaborg.core.source.ISourceRegion;
+import org.metaborg.core.style.IRegionStyle;
+import org.metaborg.core.style.IStyle;
+import org.metaborg.spoofax.eclipse.util.Nullable;
+import org.metaborg.spoofax.eclipse.util.SharedColors;
+
+import com.google.common.base.Objects;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+/**
+ * Packed representation of the styling of a document. Style regions are stored in parallel arrays of start offsets,
+ * lengths, and style identifiers, sorted by start offset. Styles are interned in a small table, such that style ranges
+ * are only created for the regions that are applied to a viewer, and lookups of a region use binary search.
+ *
+ * Immutable after construction.
+ */
+public class StyleBuffer {
+    private final int[] starts;
+    private final int[] lengths;
+    private final int[] styleIds;
+    private final int size;
+    private final StyleRange[] styles;
+    private final @Nullable Color defaultForeground;
+
+
+    /**
+     * Creates a style buffer from given Spoofax styles.
+     *
+     * @param regionStyles
+     *            Spoofax styles, which do not overlap.
+     * @param colors
+     *            Lease to acquire shared colors with.
+     */
+    public StyleBuffer(Iterable<? extends IRegionStyle<?>> regionStyles, SharedColors.Lease colors) {
+        final Map<StyleKey, Integer> styleIds = Maps.newHashMap();
+        final List<StyleRange> styles = Lists.newArrayList();
+
+        int capacity = 256;
+        int[] starts = new int[capacity];
+        int[] lengths = new int[capacity];
+        int[] ids = new int[capacity];
+        int size = 0;
+        boolean sorted = true;
+        for(IRegionStyle<?> regionStyle : regionStyles) {
+            final ISourceRegion region = regionStyle.region();
+            final int start = region.startOffset();
+            final int length = region.endOffset() - region.startOffset() + 1;
+            if(length <= 0) {
+                continue;
+            }
+
+            final IStyle style = regionStyle.style();
+            final StyleKey key = new StyleKey(style);
+            Integer id = styleIds.get(key);
+            if(id == null) {
+                id = styles.size();
+                styleIds.put(key, id);
+                styles.add(createStyle(style, colors));
+            }
+
+            if(size == capacity) {
+                capacity *= 2;
+                starts = Arrays.copyOf(starts, capacity);
+                lengths = Arrays.copyOf(lengths, capacity);
+                ids = Arrays.copyOf(ids, capacity);
+            }
+            sorted &= size == 0 || starts[size - 1] <= start;
+            starts[size] = start;
+            lengths[size] = length;
+            ids[size] = id;
+            ++size;
+        }
+
+        if(!sorted) {
+            // Styles are usually produced in order, only sort when they are not.
+            final Integer[] order = new Integer[size];
+            for(int i = 0; i < size; ++i) {
+                order[i] = i;
+            }
+            final int[] unsortedStarts = starts;
+            Arrays.sort(order, new Comparator<Integer>() {
+                @Override public int compare(Integer index1, Integer index2) {
+                    return Integer.compare(unsortedStarts[index1], unsortedStarts[index2]);
+                }
+            });
+            final int[] sortedStarts = new int[size];
+            final int[] sortedLengths = new int[size];
+            final int[] sortedIds = new int[size];
+            for(int i = 0; i < size; ++i) {
+                sortedStarts[i] = starts[order[i]];
+                sortedLengths[i] = lengths[order[i]];
+                sortedIds[i] = ids[order[i]];
+            }
+            starts = sortedStarts;
+            lengths = sortedLengths;
+            ids = sortedIds;
+        }
+
+        this.starts = starts;
+        this.lengths = lengths;
+        this.styleIds = ids;
+        this.size = size;
+        this.styles = styles.toArray(new StyleRange[styles.size()]);
+        this.defaultForeground = colors.get(java.awt.Color.BLACK);
+    }
+
+
+    /**
+     * @return Number of style regions.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return Start offset of the style region at given index.
+     */
+    public int start(int index) {
+        return starts[index];
+    }
+
+    /**
+     * @return Length of the style region at given index.
+     */
+    public int length(int index) {
+        return lengths[index];
+    }
+
+    /**
+     * @return End offset (exclusive) of the style region at given index.
+     */
+    public int end(int index) {
+        return starts[index] + lengths[index];
+    }
+
+    /**
+     * @return Foreground color of text outside of style regions.
+     */
+    public @Nullable Color defaultForeground() {
+        return defaultForeground;
+    }
+
+    /**
+     * @return True if the style region at given index has the same style as the style region at given index in given
+     *         buffer, false otherwise.
+     */
+    public boolean sameStyle(int index, StyleBuffer other, int otherIndex) {
+        final StyleRange style = styles[styleIds[index]];
+        final StyleRange otherStyle = other.styles[other.styleIds[otherIndex]];
+        return style == otherStyle || style.similarTo(otherStyle);
+    }
+
+    /**
+     * Returns the index of the first style region that ends after given offset. Since style regions do not overlap, all
+     * style regions from that index onwards end after given offset.
+     *
+     * @param offset
+     *            Offset to search for.
+     * @return Index of the first style region that ends after given offset, or {@link #size()} if there is none.
+     */
+    public int firstEndingAfter(int offset) {
+        int low = 0;
+        int high = size;
+        while(low < high) {
+            final int mid = (low + high) >>> 1;
+            if(starts[mid] + lengths[mid] <= offset) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Creates a new style range for the style region at given index, clipped to given bounds.
+     *
+     * @param index
+     *            Index of the style region.
+     * @param min
+     *            Minimum offset of the style range.
+     * @param max
+     *            Maximum offset (exclusive) of the style range.
+     * @return New style range, owned by the caller.
+     */
+    public StyleRange create(int index, int min, int max) {
+        return create(index, 0, min, max);
+    }
+
+    /**
+     * Creates a new style range for the style region at given index, shifted by given amount and clipped to given
+     * bounds.
+     *
+     * @param index
+     *            Index of the style region.
+     * @param shift
+     *            Amount to shift the style region by, for example to account for an edit before the region.
+     * @param min
+     *            Minimum offset of the style range.
+     * @param max
+     *            Maximum offset (exclusive) of the style range.
+     * @return New style range, owned by the caller.
+     */
+    public StyleRange create(int index, int shift, int min, int max) {
+        final StyleRange styleRange = (StyleRange) styles[styleIds[index]].clone();
+        final int start = starts[index] + shift;
+        styleRange.start = Math.max(min, start);
+        styleRange.length = Math.min(max, start + lengths[index]) - styleRange.start;
+        return styleRange;
+    }
+
+
+    private static StyleRange createStyle(IStyle style, SharedColors.Lease colors) {
+        final StyleRange styleRange = new StyleRange();
+        final java.awt.Color foreground = style.color();
+        if(foreground != null) {
+            styleRange.foreground = colors.get(foreground);
+        }
+        final java.awt.Color background = style.backgroundColor();
+        if(background != null) {
+            styleRange.background = colors.get(background);
+        }
+        if(style.bold()) {
+            styleRange.fontStyle |= SWT.BOLD;
+        }
+        if(style.italic()) {
+            styleRange.fontStyle |= SWT.ITALIC;
+        }
+        if(style.underscore()) {
+            styleRange.underline = true;
+        }
+        if(style.strikeout()) {
+            styleRange.strikeout = true;
+        }
+        return styleRange;
+    }
+
+
+    private static class StyleKey {
+        private final @Nullable java.awt.Color color;
+        private final @Nullable java.awt.Color backgroundColor;
+        private final int flags;
+
+
+        public StyleKey(IStyle style) {
+            this.color = style.color();
+            this.backgroundColor = style.backgroundColor();
+            this.flags = (style.bold() ? 1 : 0) | (style.italic() ? 2 : 0) | (style.underscore() ? 4 : 0)
+                | (style.strikeout() ? 8 : 0);
+        }
+
+
+        @Override public int hashCode() {
+            return Objects.hashCode(color, backgroundColor, flags);
+        }
+
+        @Override public boolean equals(Object obj) {
+            if(this == obj) {
+                return true;
+            }
+            if(obj == null || getClass() != obj.getClass()) {
+                return false;
+            }
+            final StyleKey other = (StyleKey) obj;
+            return flags == other.flags && Objects.equal(color, other.color)
+                && Objects.equal(backgroundColor, other.backgroundColor);
+        }
+    }
+}
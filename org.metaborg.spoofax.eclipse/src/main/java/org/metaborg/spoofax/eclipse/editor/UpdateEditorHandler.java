@@ -0,0 +1,43 @@
+package org.metaborg.spoofax.eclipse.editor;
+
+import org.eclipse.core.commands.AbstractHandler;
+import org.eclipse.core.commands.ExecutionEvent;
+import org.eclipse.core.commands.ExecutionException;
+import org.metaborg.spoofax.eclipse.SpoofaxPlugin;
+import org.metaborg.util.log.ILogger;
+import org.metaborg.util.log.LoggerUtils;
+import org.spoofax.interpreter.terms.IStrategoTerm;
+
+import com.google.inject.Injector;
+import com.google.inject.Key;
+import com.google.inject.TypeLiteral;
+
+/**
+ * Fully updates the current editor, including the outline and analysis of editors in large file mode.
+ */
+public class UpdateEditorHandler extends AbstractHandler {
+    private static final ILogger logger = LoggerUtils.logger(UpdateEditorHandler.class);
+
+    private final IEclipseEditorRegistry<?> editorRegistry;
+
+
+    public UpdateEditorHandler() {
+        final Injector injector = SpoofaxPlugin.injector();
+
+        this.editorRegistry =
+            injector.getInstance(Key.get(new TypeLiteral<IEclipseEditorRegistry<IStrategoTerm>>() {}));
+    }
+
+
+    @Override public Object execute(ExecutionEvent event) throws ExecutionException {
+        final IEclipseEditor<?> editor = editorRegistry.currentEditor();
+        if(editor == null) {
+            logger.debug("Cannot update editor; there is no Spoofax editor open currently");
+            return null;
+        }
+
+        editor.forceUpdate();
+
+        return null;
+    }
+}
@@ -38,6 +38,7 @@ import org.metaborg.spoofax.core.unit.ISpoofaxInputUnit;
 import org.metaborg.spoofax.core.unit.ISpoofaxParseUnit;
 import org.metaborg.spoofax.core.unit.ISpoofaxTransformUnit;
 import org.metaborg.spoofax.eclipse.SpoofaxPlugin;
+import org.metaborg.spoofax.eclipse.processing.ParseResultCache;
 import org.metaborg.util.log.ILogger;
 import org.metaborg.util.log.LoggerUtils;
 import org.spoofax.interpreter.terms.IStrategoAppl;
@@ -138,6 +139,7 @@ public class SpoofaxCompletionProposal
     private final ICompletionService<ISpoofaxParseUnit> completionService;
     private final IInputUnitService<ISpoofaxInputUnit> unitService;
     private final ISyntaxService<ISpoofaxInputUnit, ISpoofaxParseUnit> syntaxService;
+    private final ParseResultCache parseCache;
     private final ITracingService<ISpoofaxParseUnit, ISpoofaxAnalyzeUnit, ISpoofaxTransformUnit<?>, IStrategoTerm> tracingService;
     private final FileObject source;
     private final ILanguageImpl language;
@@ -153,6 +155,7 @@ public class SpoofaxCompletionProposal
         this.completionService = SpoofaxPlugin.spoofax().completionService;
         this.unitService = SpoofaxPlugin.spoofax().unitService;
         this.syntaxService = SpoofaxPlugin.spoofax().syntaxService;
+        this.parseCache = SpoofaxPlugin.injector().getInstance(ParseResultCache.class);
         this.tracingService = SpoofaxPlugin.spoofax().tracingService;
         this.source = source;
         this.language = language;
@@ -187,7 +190,7 @@ public class SpoofaxCompletionProposal
 
         try {
             final ISpoofaxInputUnit input = unitService.inputUnit(source, finalText, language, null);
-            completedParseResult = syntaxService.parse(input);
+            completedParseResult = parseCache.parse(input, syntaxService);
             if (completedParseResult == null || completedParseResult.ast() == null){
                 throw new Exception("Could not parse completed text: \n\n" + finalText);
             }            
@@ -21,6 +21,7 @@ import org.metaborg.core.syntax.IParseUnit;
 import org.metaborg.core.unit.IInputUnitService;
 import org.metaborg.spoofax.core.unit.ISpoofaxParseUnit;
 import org.metaborg.spoofax.eclipse.SpoofaxPlugin;
+import org.metaborg.spoofax.eclipse.processing.ParseResultCache;
 import org.metaborg.util.log.ILogger;
 import org.metaborg.util.log.LoggerUtils;
 
@@ -40,6 +41,7 @@ public class SpoofaxContentAssistProcessor<I extends IInputUnit, P extends IPars
     private final IInputUnitService<I> unitService;
     private final ICompletionService<ISpoofaxParseUnit> completionService;
     private final IParseResultRequester<I, P> parseResultRequester;
+    private final ParseResultCache parseCache;
     private final FileObject resource;
     private final IDocument document;
     private final ILanguageImpl language;
@@ -55,6 +57,7 @@ public class SpoofaxContentAssistProcessor<I extends IInputUnit, P extends IPars
         this.unitService = unitService;
         this.completionService = SpoofaxPlugin.spoofax().completionService;
         this.parseResultRequester = parseResultRequester;
+        this.parseCache = SpoofaxPlugin.injector().getInstance(ParseResultCache.class);
         this.informationControlCreator = informationControlCreator;
         this.resource = resource;
         this.document = document;
@@ -83,8 +86,13 @@ public class SpoofaxContentAssistProcessor<I extends IInputUnit, P extends IPars
                 }
                 // TODO: support dialects
 
-                final ISpoofaxParseUnit parseResult =
-                    (ISpoofaxParseUnit) parseResultRequester.request(input).toBlocking().first();
+                // Use the cached parse result if the editor already parsed the current text.
+                P parseUnit = parseCache.get(input);
+                if(parseUnit == null) {
+                    parseUnit = parseResultRequester.request(input).toBlocking().first();
+                    parseCache.put(parseUnit);
+                }
+                final ISpoofaxParseUnit parseResult = (ISpoofaxParseUnit) parseUnit;
 
                 if(subscriber.isUnsubscribed()) {
                     return;
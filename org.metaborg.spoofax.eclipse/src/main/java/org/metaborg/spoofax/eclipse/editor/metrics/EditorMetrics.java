@@ -0,0 +1,70 @@
+package org.metaborg.spoofax.eclipse.editor.metrics;
+
+import java.util.Map;
+
+import org.apache.commons.vfs2.FileName;
+import org.apache.commons.vfs2.FileObject;
+import org.metaborg.core.language.ILanguageImpl;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.collect.ImmutableMap;
+
+/**
+ * Records the durations of editor update phases per language and per file, for showing in the
+ * {@link PerformanceView}.
+ */
+public class EditorMetrics {
+    private static final CacheLoader<Object, PhaseTimings> newTimings = new CacheLoader<Object, PhaseTimings>() {
+        @Override public PhaseTimings load(Object key) {
+            return new PhaseTimings();
+        }
+    };
+
+    private final LoadingCache<ILanguageImpl, PhaseTimings> languageTimings =
+        CacheBuilder.newBuilder().weakKeys().build(newTimings);
+    private final LoadingCache<FileName, PhaseTimings> fileTimings =
+        CacheBuilder.newBuilder().maximumSize(256).build(newTimings);
+
+
+    /**
+     * Records the durations of an editor update.
+     *
+     * @param resource
+     *            Updated file.
+     * @param timings
+     *            Durations of the phases of the update.
+     */
+    public void record(FileObject resource, UpdateTimings timings) {
+        if(timings.durations().isEmpty()) {
+            return;
+        }
+        final ILanguageImpl langImpl = timings.language();
+        if(langImpl != null) {
+            languageTimings.getUnchecked(langImpl).add(timings);
+        }
+        fileTimings.getUnchecked(resource.getName()).add(timings);
+    }
+
+
+    /**
+     * @return Snapshot of the durations per language.
+     */
+    public Map<ILanguageImpl, PhaseTimings> languages() {
+        return snapshot(languageTimings);
+    }
+
+    /**
+     * @return Snapshot of the durations per file, for the most recently updated files.
+     */
+    public Map<FileName, PhaseTimings> files() {
+        return snapshot(fileTimings);
+    }
+
+
+    private static <K> Map<K, PhaseTimings> snapshot(Cache<K, PhaseTimings> cache) {
+        return ImmutableMap.copyOf(cache.asMap());
+    }
+}
@@ -0,0 +1,25 @@
+package org.metaborg.spoofax.eclipse.editor.metrics;
+
+/**
+ * Phases of an editor update, in the order in which they are executed. The cancel phase is the time between
+ * cancelling an update and the update stopping, it is only recorded for cancelled updates.
+ */
+public enum EditorPhase {
+    IDENTIFY("Identify"),
+    PARSE("Parse"),
+    STYLE("Style"),
+    OUTLINE("Outline"),
+    WAIT("Wait"),
+    PARSE_MESSAGES("Parse messages"),
+    ANALYZE("Analyze"),
+    ANALYSIS_MESSAGES("Analysis messages"),
+    CANCEL("Cancel latency");
+
+
+    public final String displayName;
+
+
+    private EditorPhase(String displayName) {
+        this.displayName = displayName;
+    }
+}
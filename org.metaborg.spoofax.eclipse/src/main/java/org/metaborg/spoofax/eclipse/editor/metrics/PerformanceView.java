@@ -0,0 +1,110 @@
+package org.metaborg.spoofax.eclipse.editor.metrics;
+
+import java.util.Map.Entry;
+
+import org.apache.commons.vfs2.FileName;
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.layout.GridData;
+import org.eclipse.swt.layout.GridLayout;
+import org.eclipse.swt.widgets.Composite;
+import org.eclipse.swt.widgets.Display;
+import org.eclipse.swt.widgets.Label;
+import org.eclipse.swt.widgets.Table;
+import org.eclipse.swt.widgets.TableColumn;
+import org.eclipse.swt.widgets.TableItem;
+import org.eclipse.ui.part.ViewPart;
+import org.metaborg.core.language.ILanguageImpl;
+import org.metaborg.spoofax.eclipse.SpoofaxPlugin;
+import org.metaborg.spoofax.eclipse.processing.ParseResultCache;
+
+/**
+ * View that shows the 50th and 95th percentile and maximum duration of each editor update phase, per language and per
+ * file, and the hit rate of the {@link ParseResultCache}. Refreshes periodically while it is open.
+ */
+public class PerformanceView extends ViewPart {
+    public static final String id = "org.metaborg.spoofax.eclipse.view.performance";
+
+    private static final int refreshIntervalMillis = 2000;
+    private static final String[] columns =
+        { "Language or file", "Phase", "Count", "p50 (ms)", "p95 (ms)", "Max (ms)" };
+
+    private final EditorMetrics metrics;
+    private final ParseResultCache parseCache;
+    private final Runnable refresher;
+
+    private Label parseCacheLabel;
+    private Table table;
+
+
+    public PerformanceView() {
+        this.metrics = SpoofaxPlugin.injector().getInstance(EditorMetrics.class);
+        this.parseCache = SpoofaxPlugin.injector().getInstance(ParseResultCache.class);
+        this.refresher = new Runnable() {
+            @Override public void run() {
+                if(table == null || table.isDisposed()) {
+                    return;
+                }
+                refresh();
+                Display.getCurrent().timerExec(refreshIntervalMillis, this);
+            }
+        };
+    }
+
+
+    @Override public void createPartControl(Composite parent) {
+        parent.setLayout(new GridLayout(1, false));
+        parseCacheLabel = new Label(parent, SWT.NONE);
+        parseCacheLabel.setLayoutData(new GridData(SWT.FILL, SWT.TOP, true, false));
+        table = new Table(parent, SWT.FULL_SELECTION | SWT.V_SCROLL | SWT.H_SCROLL);
+        table.setLayoutData(new GridData(SWT.FILL, SWT.FILL, true, true));
+        table.setHeaderVisible(true);
+        table.setLinesVisible(true);
+        for(String name : columns) {
+            final TableColumn column = new TableColumn(table, SWT.LEFT);
+            column.setText(name);
+            column.setWidth(name.equals(columns[0]) ? 300 : 100);
+        }
+        refresher.run();
+    }
+
+    @Override public void setFocus() {
+        table.setFocus();
+    }
+
+    @Override public void dispose() {
+        Display.getCurrent().timerExec(-1, refresher);
+        super.dispose();
+    }
+
+
+    private void refresh() {
+        final long hits = parseCache.hits();
+        final long misses = parseCache.misses();
+        final long lookups = hits + misses;
+        parseCacheLabel.setText("Parse result cache: " + parseCache.size() + " entries, " + hits + " hits, " + misses
+            + " misses" + (lookups > 0 ? " (" + (hits * 100 / lookups) + "% hit rate)" : ""));
+
+        table.setRedraw(false);
+        table.removeAll();
+        for(Entry<ILanguageImpl, PhaseTimings> entry : metrics.languages().entrySet()) {
+            addRows(entry.getKey().id().toString(), entry.getValue());
+        }
+        for(Entry<FileName, PhaseTimings> entry : metrics.files().entrySet()) {
+            addRows(entry.getKey().getURI(), entry.getValue());
+        }
+        table.setRedraw(true);
+    }
+
+    private void addRows(String name, PhaseTimings timings) {
+        for(EditorPhase phase : EditorPhase.values()) {
+            final int count = timings.count(phase);
+            if(count == 0) {
+                continue;
+            }
+            final TableItem item = new TableItem(table, SWT.NONE);
+            item.setText(new String[] { name, phase.displayName, Integer.toString(count),
+                Long.toString(timings.percentile(phase, 50)), Long.toString(timings.percentile(phase, 95)),
+                Long.toString(timings.max(phase)) });
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package org.metaborg.spoofax.eclipse.editor.metrics;
+
+import java.util.Arrays;
+import java.util.Map.Entry;
+
+/**
+ * Bounded ring buffer of the most recent durations of each editor update phase.
+ */
+public class PhaseTimings {
+    private static final int capacity = 128;
+
+    private final long[][] samples = new long[EditorPhase.values().length][capacity];
+    private final int[] counts = new int[EditorPhase.values().length];
+    private final int[] next = new int[EditorPhase.values().length];
+
+
+    /**
+     * Adds the durations of given update, overwriting the oldest durations when the buffer is full.
+     */
+    public synchronized void add(UpdateTimings timings) {
+        for(Entry<EditorPhase, Long> entry : timings.durations().entrySet()) {
+            final int phase = entry.getKey().ordinal();
+            samples[phase][next[phase]] = entry.getValue();
+            next[phase] = (next[phase] + 1) % capacity;
+            counts[phase] = Math.min(capacity, counts[phase] + 1);
+        }
+    }
+
+    /**
+     * @return Number of recorded durations of given phase, at most the capacity of the buffer.
+     */
+    public synchronized int count(EditorPhase phase) {
+        return counts[phase.ordinal()];
+    }
+
+    /**
+     * Returns a percentile of the recorded durations of given phase, using the nearest rank method.
+     *
+     * @param phase
+     *            Phase to get the percentile of.
+     * @param percentile
+     *            Percentile between 0 and 100.
+     * @return Duration in milliseconds, or -1 if no durations were recorded.
+     */
+    public synchronized long percentile(EditorPhase phase, int percentile) {
+        final int count = counts[phase.ordinal()];
+        if(count == 0) {
+            return -1;
+        }
+        final long[] sorted = Arrays.copyOf(samples[phase.ordinal()], count);
+        Arrays.sort(sorted);
+        final int rank = (int) Math.ceil(percentile / 100.0 * count);
+        return sorted[Math.max(0, Math.min(count - 1, rank - 1))];
+    }
+
+    /**
+     * @return Maximum recorded duration of given phase in milliseconds, or -1 if no durations were recorded.
+     */
+    public synchronized long max(EditorPhase phase) {
+        final int count = counts[phase.ordinal()];
+        long max = -1;
+        for(int i = 0; i < count; ++i) {
+            max = Math.max(max, samples[phase.ordinal()][i]);
+        }
+        return max;
+    }
+}
@@ -0,0 +1,79 @@
+package org.metaborg.spoofax.eclipse.editor.metrics;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.metaborg.core.language.ILanguageImpl;
+import org.metaborg.spoofax.eclipse.util.Nullable;
+
+/**
+ * Durations of the phases of a single editor update. Phases are timed back to back; ending a phase attributes the
+ * time since the previous phase ended to that phase.
+ */
+public class UpdateTimings {
+    private final Map<EditorPhase, Long> durations = new EnumMap<>(EditorPhase.class);
+    private long phaseStart = System.nanoTime();
+    private @Nullable ILanguageImpl language;
+
+
+    /**
+     * Ends given phase, attributing the time since the previous phase ended, or since creation, to given phase.
+     *
+     * @param phase
+     *            Phase to end.
+     */
+    public void end(EditorPhase phase) {
+        final long now = System.nanoTime();
+        durations.put(phase, (now - phaseStart) / 1000000);
+        phaseStart = now;
+    }
+
+    /**
+     * Records given duration for given phase, for durations that are not timed back to back with other phases.
+     *
+     * @param phase
+     *            Phase to record the duration for.
+     * @param durationMillis
+     *            Duration in milliseconds.
+     */
+    public void set(EditorPhase phase, long durationMillis) {
+        durations.put(phase, durationMillis);
+    }
+
+    /**
+     * Sets the language of the updated file, once it has been identified.
+     */
+    public void setLanguage(ILanguageImpl language) {
+        this.language = language;
+    }
+
+    /**
+     * @return Language of the updated file, or null if it has not been identified.
+     */
+    public @Nullable ILanguageImpl language() {
+        return language;
+    }
+
+    /**
+     * @return Durations in milliseconds of phases that have ended.
+     */
+    public Map<EditorPhase, Long> durations() {
+        return durations;
+    }
+
+
+    @Override public String toString() {
+        final StringBuilder sb = new StringBuilder();
+        for(Entry<EditorPhase, Long> entry : durations.entrySet()) {
+            if(sb.length() > 0) {
+                sb.append(", ");
+            }
+            sb.append(entry.getKey().displayName);
+            sb.append(' ');
+            sb.append(entry.getValue());
+            sb.append("ms");
+        }
+        return sb.toString();
+    }
+}
@@ -1,6 +1,9 @@
 package org.metaborg.spoofax.eclipse.editor.tracing;
 
+import java.util.List;
+
 import org.apache.commons.vfs2.FileObject;
+import org.eclipse.core.resources.IResource;
 import org.eclipse.jface.text.IRegion;
 import org.eclipse.jface.text.ITextHover;
 import org.eclipse.jface.text.ITextViewer;
@@ -11,6 +14,7 @@ import org.eclipse.jface.text.source.ISourceViewerExtension2;
 import org.metaborg.core.MetaborgException;
 import org.metaborg.core.analysis.IAnalyzeUnit;
 import org.metaborg.core.language.ILanguageImpl;
+import org.metaborg.core.messages.IMessage;
 import org.metaborg.core.processing.analyze.IAnalysisResultRequester;
 import org.metaborg.core.processing.parse.IParseResultRequester;
 import org.metaborg.core.syntax.IInputUnit;
@@ -19,13 +23,17 @@ import org.metaborg.core.tracing.Hover;
 import org.metaborg.core.tracing.IHoverService;
 import org.metaborg.spoofax.eclipse.editor.IEclipseEditor;
 import org.metaborg.spoofax.eclipse.util.Nullable;
+import org.metaborg.spoofax.eclipse.util.OverflowMessages;
 import org.metaborg.util.iterators.Iterables2;
 import org.metaborg.util.log.ILogger;
 import org.metaborg.util.log.LoggerUtils;
 
+import com.google.common.collect.Iterables;
+
 public class SpoofaxTextHover<I extends IInputUnit, P extends IParseUnit, A extends IAnalyzeUnit, F>
     implements ITextHover {
     private static final ILogger logger = LoggerUtils.logger(SpoofaxTextHover.class);
+    private static final int maxOverflowMessages = 10;
 
     private final IParseResultRequester<I, P> parseResultRequester;
     private final IAnalysisResultRequester<I, A> analysisResultRequester;
@@ -53,6 +61,7 @@ public class SpoofaxTextHover<I extends IInputUnit, P extends IParseUnit, A exte
 
     @Override public String getHoverInfo(ITextViewer viewer, IRegion region) {
         final StringBuilder stringBuilder = annotationHover(region);
+        overflowHover(region, stringBuilder);
         if(hoverService.available(language) && !editor.editorIsUpdating()) {
             final int offset = region.getOffset();
 
@@ -114,6 +123,10 @@ public class SpoofaxTextHover<I extends IInputUnit, P extends IParseUnit, A exte
         final Iterable<Annotation> annotations = Iterables2.<Annotation>fromOnce(
             annotationModel.getAnnotationIterator(region.getOffset(), region.getLength(), true, true));
         for(Annotation annotation : annotations) {
+            // Ignore deleted annotations, and marker annotations that are superseded by editor messages.
+            if(annotation.isMarkedDeleted() || editor.supersedes(annotation)) {
+                continue;
+            }
             // Ignore certain annotations types.
             switch(annotation.getType()) {
                 case "org.eclipse.ui.workbench.texteditor.quickdiffDeletion":
@@ -128,4 +141,21 @@ public class SpoofaxTextHover<I extends IInputUnit, P extends IParseUnit, A exte
         }
         return stringBuilder;
     }
+
+    private void overflowHover(IRegion region, StringBuilder stringBuilder) {
+        final IResource eclipseResource = editor.eclipseResource();
+        if(eclipseResource == null) {
+            return;
+        }
+        final List<IMessage> messages = OverflowMessages.get(eclipseResource, region.getOffset(), region.getLength());
+        // Only show the first few overflowed messages, the remaining messages are shown in the view.
+        for(IMessage message : Iterables.limit(messages, maxOverflowMessages)) {
+            stringBuilder.append(message.message());
+            stringBuilder.append("<br/>");
+        }
+        if(messages.size() > maxOverflowMessages) {
+            stringBuilder.append(messages.size() - maxOverflowMessages);
+            stringBuilder.append(" more messages; see the Spoofax overflowed messages view<br/>");
+        }
+    }
 }
@@ -0,0 +1,76 @@
+package org.metaborg.spoofax.eclipse.job;
+
+import org.eclipse.core.runtime.jobs.Job;
+import org.metaborg.spoofax.eclipse.util.Nullable;
+import org.metaborg.util.log.ILogger;
+import org.metaborg.util.log.LoggerUtils;
+
+/**
+ * Watches a job after it has been cancelled, and measures the time it takes for the job to stop at one of its
+ * cancellation checkpoints. Only if the job does not stop within the interrupt time, its thread is interrupted, and
+ * as a last resort killed after the kill time, unless the kill time is {@link ThreadKillerJob#neverKill}. Cancelling a job again while it is being watched does not start another
+ * {@link ThreadKillerJob}.
+ */
+public class CancellationWatchdog {
+    private static final ILogger logger = LoggerUtils.logger(CancellationWatchdog.class);
+
+    private final Job job;
+    private final long interruptTimeMillis;
+    private final long killTimeMillis;
+
+    private long cancelTime = -1;
+    private @Nullable ThreadKillerJob threadKiller;
+
+
+    public CancellationWatchdog(Job job, long interruptTimeMillis, long killTimeMillis) {
+        this.job = job;
+        this.interruptTimeMillis = interruptTimeMillis;
+        this.killTimeMillis = killTimeMillis;
+    }
+
+
+    /**
+     * Starts watching the job, call from {@link Job#canceling()}.
+     *
+     * @param thread
+     *            Thread that is running the job.
+     */
+    public synchronized void cancelled(Thread thread) {
+        if(cancelTime >= 0) {
+            return;
+        }
+        if(killTimeMillis == ThreadKillerJob.neverKill) {
+            logger.trace("Cancelling {}, interrupting in {}ms", job.getName(), interruptTimeMillis);
+        } else {
+            logger.trace("Cancelling {}, interrupting in {}ms, killing in {}ms", job.getName(), interruptTimeMillis,
+                interruptTimeMillis + killTimeMillis);
+        }
+        cancelTime = System.currentTimeMillis();
+        threadKiller = new ThreadKillerJob(thread, killTimeMillis);
+        threadKiller.schedule(interruptTimeMillis);
+    }
+
+    /**
+     * Stops watching the job, call when the job stops running, for example from a finally block in
+     * {@link Job#run(org.eclipse.core.runtime.IProgressMonitor)}.
+     *
+     * @return Time in milliseconds between cancelling the job and the job stopping, or -1 if the job was not cancelled.
+     */
+    public synchronized long stopped() {
+        if(threadKiller != null) {
+            threadKiller.cancel();
+            threadKiller = null;
+        }
+        if(cancelTime < 0) {
+            return -1;
+        }
+        final long latency = System.currentTimeMillis() - cancelTime;
+        cancelTime = -1;
+        if(latency > interruptTimeMillis) {
+            logger.warn("{} took {}ms to stop after being cancelled", job.getName(), latency);
+        } else {
+            logger.trace("{} stopped {}ms after being cancelled", job.getName(), latency);
+        }
+        return latency;
+    }
+}
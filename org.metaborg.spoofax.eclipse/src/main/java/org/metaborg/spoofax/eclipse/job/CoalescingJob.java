@@ -0,0 +1,169 @@
+package org.metaborg.spoofax.eclipse.job;
+
+import org.eclipse.core.runtime.jobs.Job;
+import org.metaborg.spoofax.eclipse.util.Nullable;
+import org.metaborg.util.task.ICancel;
+
+/**
+ * Long-lived job that processes requests from a latest-wins mailbox. Requests that arrive before the previous request
+ * is processed are coalesced into a single request. A running job checks {@link #superseded()} at its checkpoints, to
+ * stop early when a newer request arrives or when the request it is processing has become stale.
+ *
+ * @param <R>
+ *            Type of requests.
+ */
+public abstract class CoalescingJob<R> extends Job {
+    private final Object lock = new Object();
+    private @Nullable R pendingRequest;
+    private boolean stale = false;
+    private boolean disposed = false;
+
+
+    public CoalescingJob(String name) {
+        super(name);
+    }
+
+
+    /**
+     * Requests processing of given request. Coalesces the request with the pending request if there is one. If the job
+     * is running, it is rescheduled after it finishes.
+     *
+     * @param request
+     *            Request to process.
+     * @param delayMs
+     *            Delay in milliseconds before processing the request. Replaces the delay of a pending request that has
+     *            not started yet.
+     * @return True if there was no pending request yet, false if the request was coalesced with a pending request.
+     */
+    public boolean request(R request, long delayMs) {
+        final boolean first;
+        synchronized(lock) {
+            if(disposed) {
+                return false;
+            }
+            first = pendingRequest == null;
+            pendingRequest = first ? request : coalesce(pendingRequest, request);
+            lock.notifyAll();
+        }
+        if(getState() == Job.SLEEPING) {
+            wakeUp(delayMs);
+        } else {
+            schedule(delayMs);
+        }
+        return first;
+    }
+
+    /**
+     * Marks the request that is currently being processed as stale. A running job stops at its next checkpoint, since
+     * its results would be discarded anyway.
+     */
+    public void markStale() {
+        synchronized(lock) {
+            stale = true;
+            lock.notifyAll();
+        }
+    }
+
+    /**
+     * Drops the pending request and cancels this job. Requests made after disposing are ignored.
+     */
+    public void dispose() {
+        synchronized(lock) {
+            pendingRequest = null;
+            disposed = true;
+            lock.notifyAll();
+        }
+        cancel();
+    }
+
+
+    /**
+     * Coalesces a pending request with a request that was made after it. Defaults to returning the latest request.
+     *
+     * @param pending
+     *            Request that has not been processed yet.
+     * @param next
+     *            Request that was made after the pending request.
+     * @return Coalesced request.
+     */
+    protected R coalesce(R pending, R next) {
+        return next;
+    }
+
+    /**
+     * Takes the pending request for processing.
+     *
+     * @return Pending request, or null if there is none.
+     */
+    protected @Nullable R takeRequest() {
+        synchronized(lock) {
+            final R request = pendingRequest;
+            pendingRequest = null;
+            stale = false;
+            return request;
+        }
+    }
+
+    /**
+     * @return True if a newer request has arrived, or if the request being processed became stale, false otherwise.
+     */
+    protected boolean superseded() {
+        synchronized(lock) {
+            return pendingRequest != null || stale || disposed;
+        }
+    }
+
+    /**
+     * Creates a cancellation token that is cancelled when given token is cancelled, or when the request being processed
+     * is superseded. Pass this token to long running operations, such that they stop at their own cancellation
+     * checkpoints when their result would be discarded anyway.
+     *
+     * @param cancel
+     *            Cancellation token of this job.
+     * @return Cancellation token that also checks for supersession.
+     */
+    protected ICancel supersedable(final ICancel cancel) {
+        return new ICancel() {
+            @Override public void cancel() {
+                cancel.cancel();
+            }
+
+            @Override public boolean cancelled() {
+                return cancel.cancelled() || superseded();
+            }
+
+            @Override public void throwIfCancelled() throws InterruptedException {
+                if(cancelled()) {
+                    throw new InterruptedException();
+                }
+            }
+        };
+    }
+
+    /**
+     * Waits for given delay, stopping early when the request being processed is superseded or cancelled.
+     *
+     * @param delayMs
+     *            Delay in milliseconds.
+     * @param cancel
+     *            Cancellation token.
+     * @return True if the full delay has passed, false if the wait was interrupted.
+     * @throws InterruptedException
+     *             When the thread is interrupted while waiting.
+     */
+    protected boolean await(long delayMs, ICancel cancel) throws InterruptedException {
+        final long deadline = System.currentTimeMillis() + delayMs;
+        synchronized(lock) {
+            long remaining = delayMs;
+            while(remaining > 0) {
+                if(pendingRequest != null || stale || disposed || cancel.cancelled()) {
+                    return false;
+                }
+                // Wake up periodically to check for cancellation, which does not notify the lock.
+                lock.wait(Math.min(remaining, 50));
+                remaining = deadline - System.currentTimeMillis();
+            }
+            return pendingRequest == null && !stale && !disposed && !cancel.cancelled();
+        }
+    }
+}
@@ -8,9 +8,16 @@ import org.metaborg.util.log.ILogger;
 import org.metaborg.util.log.LoggerUtils;
 
 /**
- * Job that interrupts given thread when scheduled, and kills the thread after a certain time.
+ * Job that interrupts given thread when scheduled, and kills the thread after a certain time, unless the kill time is
+ * {@link #neverKill}. Killing a thread may leave shared state inconsistent, jobs should stop at cancellation
+ * checkpoints instead, see {@link CancellationWatchdog}.
  */
 public class ThreadKillerJob extends Job {
+    /**
+     * Kill time that only interrupts the thread, without ever killing it.
+     */
+    public static final long neverKill = -1;
+
     private static final ILogger logger = LoggerUtils.logger(ThreadKillerJob.class);
 
     private final Thread thread;
@@ -33,6 +40,12 @@ public class ThreadKillerJob extends Job {
         if(monitor.isCanceled())
             return StatusUtils.cancel();
 
+        if(killTimeMillis == neverKill) {
+            logger.warn("Interrupting {}", thread);
+            thread.interrupt();
+            return StatusUtils.success();
+        }
+
         logger.warn("Interrupting {}, killing after {}ms", thread, killTimeMillis);
         thread.interrupt();
 
@@ -45,7 +58,7 @@ public class ThreadKillerJob extends Job {
         if(monitor.isCanceled())
             return StatusUtils.cancel();
 
-        logger.warn("Killing {}", thread);
+        logger.error("Killing {}, it did not stop {}ms after being interrupted", thread, killTimeMillis);
         thread.stop();
 
         return StatusUtils.success();
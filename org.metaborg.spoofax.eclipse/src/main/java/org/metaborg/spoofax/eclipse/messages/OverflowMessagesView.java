@@ -0,0 +1,109 @@
+package org.metaborg.spoofax.eclipse.messages;
+
+import java.util.List;
+
+import org.eclipse.core.resources.IResource;
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.widgets.Composite;
+import org.eclipse.swt.widgets.Display;
+import org.eclipse.swt.widgets.Event;
+import org.eclipse.swt.widgets.Listener;
+import org.eclipse.swt.widgets.Table;
+import org.eclipse.swt.widgets.TableColumn;
+import org.eclipse.swt.widgets.TableItem;
+import org.eclipse.ui.part.ViewPart;
+import org.metaborg.core.messages.IMessage;
+import org.metaborg.core.source.ISourceRegion;
+import org.metaborg.spoofax.eclipse.util.OverflowMessages;
+
+import com.google.common.collect.Lists;
+
+/**
+ * View that shows the messages that were not turned into markers because of marker limits, see
+ * {@link OverflowMessages}. Uses a virtual table, such that table items are only created for the rows that are
+ * shown. Refreshes periodically while it is open, when the store has changed.
+ */
+public class OverflowMessagesView extends ViewPart {
+    public static final String id = "org.metaborg.spoofax.eclipse.view.overflowmessages";
+
+    private static final int refreshIntervalMillis = 2000;
+    private static final String[] columns = { "Resource", "Line", "Severity", "Type", "Message" };
+
+    private final Runnable refresher;
+
+    private Table table;
+    private List<IResource> rowResources = Lists.newArrayList();
+    private List<IMessage> rowMessages = Lists.newArrayList();
+    private int modifications = -1;
+
+
+    public OverflowMessagesView() {
+        this.refresher = new Runnable() {
+            @Override public void run() {
+                if(table == null || table.isDisposed()) {
+                    return;
+                }
+                refresh();
+                Display.getCurrent().timerExec(refreshIntervalMillis, this);
+            }
+        };
+    }
+
+
+    @Override public void createPartControl(Composite parent) {
+        table = new Table(parent, SWT.VIRTUAL | SWT.FULL_SELECTION | SWT.V_SCROLL | SWT.H_SCROLL);
+        table.setHeaderVisible(true);
+        table.setLinesVisible(true);
+        for(String name : columns) {
+            final TableColumn column = new TableColumn(table, SWT.LEFT);
+            column.setText(name);
+            column.setWidth(name.equals("Message") ? 500 : (name.equals("Resource") ? 300 : 80));
+        }
+        table.addListener(SWT.SetData, new Listener() {
+            @Override public void handleEvent(Event event) {
+                final TableItem item = (TableItem) event.item;
+                final int index = table.indexOf(item);
+                if(index >= rowMessages.size()) {
+                    return;
+                }
+                final IMessage message = rowMessages.get(index);
+                final ISourceRegion region = message.region();
+                item.setText(new String[] { rowResources.get(index).getFullPath().toString(),
+                    region != null ? Integer.toString(region.startRow() + 1) : "", message.severity().toString(),
+                    message.type().toString(), message.message() });
+            }
+        });
+        refresher.run();
+    }
+
+    @Override public void setFocus() {
+        table.setFocus();
+    }
+
+    @Override public void dispose() {
+        Display.getCurrent().timerExec(-1, refresher);
+        super.dispose();
+    }
+
+
+    private void refresh() {
+        final int currentModifications = OverflowMessages.modifications();
+        if(currentModifications == modifications) {
+            return;
+        }
+        modifications = currentModifications;
+
+        final List<IResource> resources = Lists.newArrayList();
+        final List<IMessage> messages = Lists.newArrayList();
+        for(IResource resource : OverflowMessages.resources().keySet()) {
+            for(IMessage message : OverflowMessages.get(resource)) {
+                resources.add(resource);
+                messages.add(message);
+            }
+        }
+        rowResources = resources;
+        rowMessages = messages;
+        table.clearAll();
+        table.setItemCount(messages.size());
+    }
+}
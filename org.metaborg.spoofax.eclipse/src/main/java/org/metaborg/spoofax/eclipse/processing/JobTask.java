@@ -1,22 +1,41 @@
 package org.metaborg.spoofax.eclipse.processing;
 
+import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.jobs.IJobChangeEvent;
 import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.core.runtime.jobs.JobChangeAdapter;
 import org.metaborg.core.processing.ITask;
+import org.metaborg.spoofax.eclipse.job.CancellationWatchdog;
+import org.metaborg.spoofax.eclipse.job.ThreadKillerJob;
+import org.metaborg.spoofax.eclipse.util.Nullable;
 import org.metaborg.spoofax.eclipse.util.ValueStatus;
 import org.metaborg.util.task.ICancel;
 
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+
 /**
- * Task implementation for Eclipse jobs.
+ * Task implementation for Eclipse jobs. The result of the job is also available as a {@link #future() future}, which
+ * can be composed with other futures, or waited for with a timeout.
  */
 public class JobTask<T> implements ITask<T> {
     private final Job job;
     private final ICancel cancel;
+    private final SettableFuture<T> future = SettableFuture.create();
+
+    private volatile @Nullable CancellationWatchdog watchdog;
 
 
     public JobTask(Job job, ICancel cancel) {
         this.job = job;
         this.cancel = cancel;
+
+        job.addJobChangeListener(new JobChangeAdapter() {
+            @Override public void done(IJobChangeEvent event) {
+                complete(event.getResult());
+            }
+        });
     }
 
 
@@ -30,10 +49,21 @@ public class JobTask<T> implements ITask<T> {
         cancel.cancel();
     }
 
+    /**
+     * Cancels the task cooperatively. If the job is running and does not stop at a cancellation checkpoint within given
+     * timeout, its thread is interrupted. The thread is never killed, use {@link #kill(int, int)} for that.
+     */
     @Override public void cancel(int forceTimeout) {
-        job.cancel();
-        cancel.cancel();
-        // TODO: kill after timeout
+        cancel(forceTimeout, ThreadKillerJob.neverKill);
+    }
+
+    /**
+     * Cancels the task, and kills its thread as a last resort. If the job is running and does not stop within given
+     * interrupt timeout, its thread is interrupted, and killed if it does not stop within given kill timeout after being
+     * interrupted. Killing a thread may leave shared state inconsistent, prefer {@link #cancel(int)}.
+     */
+    public void kill(int interruptTimeout, int killTimeout) {
+        cancel(interruptTimeout, killTimeout);
     }
 
     @Override public boolean cancelled() {
@@ -41,11 +71,51 @@ public class JobTask<T> implements ITask<T> {
     }
 
     @Override public boolean completed() {
-        return job.getResult() != null;
+        return future.isDone();
+    }
+
+    @Override public T result() {
+        return value(job.getResult());
+    }
+
+    @Override public ITask<T> block() throws InterruptedException {
+        job.join();
+        return this;
+    }
+
+
+    /**
+     * @return Future that is completed with the result of the task when it completes, cancelled when the task is
+     *         cancelled, or failed when the task fails. Cancelling the future does not cancel the task.
+     */
+    public ListenableFuture<T> future() {
+        return future;
+    }
+
+
+    private void cancel(long interruptTimeout, long killTimeout) {
+        job.cancel();
+        cancel.cancel();
+
+        final Thread thread = job.getThread();
+        if(thread == null) {
+            // Job is not running, cancelling it is sufficient.
+            return;
+        }
+        final CancellationWatchdog newWatchdog = new CancellationWatchdog(job, interruptTimeout, killTimeout);
+        watchdog = newWatchdog;
+        newWatchdog.cancelled(thread);
+        if(job.getState() == Job.NONE) {
+            // Job stopped while starting the watchdog, stop watching.
+            newWatchdog.stopped();
+        }
     }
 
-    @SuppressWarnings("unchecked") @Override public T result() {
-        final IStatus status = job.getResult();
+
+    /**
+     * @return Result value from given job status.
+     */
+    @SuppressWarnings("unchecked") protected @Nullable T value(@Nullable IStatus status) {
         if(status != null && status instanceof ValueStatus) {
             final ValueStatus valueStatus = (ValueStatus) status;
             return (T) valueStatus.getValue();
@@ -54,8 +124,24 @@ public class JobTask<T> implements ITask<T> {
         return null;
     }
 
-    @Override public ITask<T> block() throws InterruptedException {
-        job.join();
-        return this;
+    /**
+     * Completes the future with given job status.
+     */
+    protected void complete(@Nullable IStatus status) {
+        final CancellationWatchdog currentWatchdog = watchdog;
+        if(currentWatchdog != null) {
+            currentWatchdog.stopped();
+        }
+
+        if(status == null || status.getSeverity() == IStatus.CANCEL) {
+            future.cancel(false);
+        } else if(status instanceof ValueStatus) {
+            future.set(value(status));
+        } else if(status.getSeverity() == IStatus.ERROR || status.getException() != null) {
+            // Silent errors have an OK severity, but carry the exception.
+            future.setException(new CoreException(status));
+        } else {
+            future.set(value(status));
+        }
     }
 }
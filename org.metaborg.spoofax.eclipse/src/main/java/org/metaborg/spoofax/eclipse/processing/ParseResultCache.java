@@ -0,0 +1,305 @@
+package org.metaborg.spoofax.eclipse.processing;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.vfs2.FileName;
+import org.apache.commons.vfs2.FileObject;
+import org.eclipse.jface.text.IDocument;
+import org.eclipse.jface.text.IDocumentExtension4;
+import org.metaborg.core.language.ILanguageCache;
+import org.metaborg.core.language.ILanguageComponent;
+import org.metaborg.core.language.ILanguageImpl;
+import org.metaborg.core.syntax.IInputUnit;
+import org.metaborg.core.syntax.IParseUnit;
+import org.metaborg.core.syntax.ISyntaxService;
+import org.metaborg.core.syntax.ParseException;
+import org.metaborg.spoofax.core.unit.ISpoofaxParseUnit;
+import org.metaborg.spoofax.eclipse.util.Nullable;
+import org.metaborg.util.log.ILogger;
+import org.metaborg.util.log.LoggerUtils;
+import org.metaborg.util.task.ICancel;
+import org.metaborg.util.task.IProgress;
+import org.spoofax.interpreter.terms.IStrategoTerm;
+
+import com.google.common.base.Objects;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.Weigher;
+
+/**
+ * Cache of parse results, shared by the editor, completion, and transformations, such that identical inputs are not
+ * parsed more than once. Parse results are keyed by language implementation, dialect, source, and a hash of the text.
+ * The text itself is compared on lookup, so hash collisions never return a parse result for different text. Least
+ * recently used parse results are evicted when the estimated memory size of the cached texts and ASTs exceeds a bound.
+ *
+ * Editors look up parse results by document and modification stamp instead, which does not hash or compare the text.
+ * A document with the same stamp has the same text, and a different stamp means that the text was changed.
+ */
+public class ParseResultCache implements ILanguageCache {
+    private static final ILogger logger = LoggerUtils.logger(ParseResultCache.class);
+    private static final long maximumBytes = 128 * 1024 * 1024;
+    private static final int bytesPerChar = 2;
+    private static final int bytesPerTerm = 64;
+    private static final int maxCountedTerms = 10000;
+    private static final int charsPerTerm = 4;
+
+    private final Cache<Key, IParseUnit> cache;
+    private final Cache<IDocument, Stamped> stamps = CacheBuilder.newBuilder().weakKeys().build();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+
+    public ParseResultCache() {
+        final Weigher<Key, IParseUnit> bytes = new Weigher<Key, IParseUnit>() {
+            @Override public int weigh(Key key, IParseUnit value) {
+                return bytes(key, value);
+            }
+        };
+        this.cache = CacheBuilder.newBuilder().maximumWeight(maximumBytes).weigher(bytes).build();
+    }
+
+
+    /**
+     * Returns the cached parse result for given input.
+     *
+     * @param input
+     *            Input to get the parse result for.
+     * @return Cached parse result, or null if the input has not been parsed or was evicted.
+     */
+    @SuppressWarnings("unchecked") public @Nullable <P extends IParseUnit> P get(IInputUnit input) {
+        final IParseUnit parseResult = cache.getIfPresent(new Key(input));
+        if(parseResult == null || !parseResult.input().text().equals(input.text())) {
+            misses.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        return (P) parseResult;
+    }
+
+    /**
+     * Returns the cached parse result for given input, which was taken from given document at given modification stamp.
+     * Only the stamp is compared, the text is never hashed nor compared. Falls back to {@link #get(IInputUnit)} when
+     * the document has no cached parse results yet or its stamp is unknown, such that parse results of the same text
+     * from other sources are reused when an editor is opened.
+     *
+     * @param input
+     *            Input to get the parse result for.
+     * @param document
+     *            Document that the text of the input was taken from.
+     * @param documentStamp
+     *            Modification stamp of the document when the text was taken.
+     * @return Cached parse result, or null if the input has not been parsed, was evicted, or the document changed.
+     */
+    @SuppressWarnings("unchecked") public @Nullable <P extends IParseUnit> P get(IInputUnit input, IDocument document,
+        long documentStamp) {
+        final Stamped stamped = stamps.getIfPresent(document);
+        if(stamped == null || documentStamp == IDocumentExtension4.UNKNOWN_MODIFICATION_STAMP) {
+            return get(input);
+        }
+        final IParseUnit parseResult = stamped.documentStamp == documentStamp ? stamped.parseResult.get() : null;
+        // Also check that the parse result was not evicted, and that the language or dialect did not change.
+        if(parseResult == null || cache.getIfPresent(stamped.key) != parseResult
+            || !stamped.key.langImpl.equals(input.langImpl()) || !Objects.equal(stamped.key.dialect, input.dialect())) {
+            misses.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        return (P) parseResult;
+    }
+
+    /**
+     * Adds given parse result to the cache. Only valid parse results are cached.
+     *
+     * @param parseResult
+     *            Parse result to cache.
+     */
+    public void put(IParseUnit parseResult) {
+        if(!parseResult.valid()) {
+            return;
+        }
+        cache.put(new Key(parseResult.input()), parseResult);
+    }
+
+    /**
+     * Adds given parse result to the cache, for lookups by given document and modification stamp. Only valid parse
+     * results are cached.
+     *
+     * @param parseResult
+     *            Parse result to cache.
+     * @param document
+     *            Document that the text of the parse result was taken from.
+     * @param documentStamp
+     *            Modification stamp of the document when the text was taken.
+     */
+    public void put(IParseUnit parseResult, IDocument document, long documentStamp) {
+        if(!parseResult.valid()) {
+            return;
+        }
+        final Key key = new Key(parseResult.input());
+        cache.put(key, parseResult);
+        stamps.put(document, new Stamped(documentStamp, key, parseResult));
+    }
+
+    /**
+     * Returns the cached parse result for given input, or parses the input and caches the result.
+     *
+     * @see ISyntaxService#parse(IInputUnit, IProgress, ICancel)
+     */
+    public <I extends IInputUnit, P extends IParseUnit> P parse(I input, ISyntaxService<I, P> syntaxService,
+        IProgress progress, ICancel cancel) throws ParseException, InterruptedException {
+        final P cached = get(input);
+        if(cached != null) {
+            return cached;
+        }
+        final P parseResult = syntaxService.parse(input, progress, cancel);
+        put(parseResult);
+        return parseResult;
+    }
+
+    /**
+     * Returns the cached parse result for given input, or parses the input and caches the result.
+     *
+     * @see ISyntaxService#parse(IInputUnit)
+     */
+    public <I extends IInputUnit, P extends IParseUnit> P parse(I input, ISyntaxService<I, P> syntaxService)
+        throws ParseException {
+        final P cached = get(input);
+        if(cached != null) {
+            return cached;
+        }
+        final P parseResult = syntaxService.parse(input);
+        put(parseResult);
+        return parseResult;
+    }
+
+
+    /**
+     * @return Number of lookups that returned a cached parse result.
+     */
+    public long hits() {
+        return hits.get();
+    }
+
+    /**
+     * @return Number of lookups that did not return a cached parse result.
+     */
+    public long misses() {
+        return misses.get();
+    }
+
+    /**
+     * @return Number of cached parse results.
+     */
+    public long size() {
+        return cache.size();
+    }
+
+
+    @Override public void invalidateCache(ILanguageImpl impl) {
+        logger.debug("Removing cached parse results for {}", impl);
+        for(Key key : cache.asMap().keySet()) {
+            if(impl.equals(key.langImpl) || impl.equals(key.dialect)) {
+                cache.invalidate(key);
+            }
+        }
+    }
+
+    @Override public void invalidateCache(ILanguageComponent component) {
+        logger.debug("Removing cached parse results for {}", component);
+        cache.invalidateAll();
+        stamps.invalidateAll();
+    }
+
+
+    /**
+     * @return Estimated memory size in bytes of given parse result, consisting of its text and AST. The AST is
+     *         typically many times larger than the text, terms are counted without taking sharing into account. At most
+     *         {@link #maxCountedTerms} terms are counted, larger ASTs are estimated from the length of the text, such
+     *         that adding a parse result of a large file does not walk its entire AST.
+     */
+    private static int bytes(Key key, IParseUnit parseResult) {
+        long bytes = (long) key.length * bytesPerChar;
+        if(parseResult instanceof ISpoofaxParseUnit) {
+            final IStrategoTerm ast = ((ISpoofaxParseUnit) parseResult).ast();
+            if(ast != null) {
+                long terms = terms(ast, maxCountedTerms);
+                if(terms >= maxCountedTerms) {
+                    terms = Math.max(terms, key.length / charsPerTerm);
+                }
+                bytes += terms * bytesPerTerm;
+            }
+        }
+        return (int) Math.min(bytes, Integer.MAX_VALUE);
+    }
+
+    /**
+     * @return Number of terms in given term, counting at most given maximum number of terms.
+     */
+    private static long terms(IStrategoTerm term, long max) {
+        final Deque<IStrategoTerm> worklist = new ArrayDeque<>();
+        worklist.push(term);
+        long count = 0;
+        while(!worklist.isEmpty() && count < max) {
+            final IStrategoTerm current = worklist.pop();
+            ++count;
+            for(int i = 0; i < current.getSubtermCount(); ++i) {
+                worklist.push(current.getSubterm(i));
+            }
+        }
+        return count;
+    }
+
+
+    private static class Stamped {
+        private final long documentStamp;
+        private final Key key;
+        // Weak, such that a document does not keep a parse result alive after it was evicted.
+        private final WeakReference<IParseUnit> parseResult;
+
+
+        public Stamped(long documentStamp, Key key, IParseUnit parseResult) {
+            this.documentStamp = documentStamp;
+            this.key = key;
+            this.parseResult = new WeakReference<>(parseResult);
+        }
+    }
+
+    private static class Key {
+        private final ILanguageImpl langImpl;
+        private final @Nullable ILanguageImpl dialect;
+        private final @Nullable FileName source;
+        private final int length;
+        private final int hash;
+
+
+        public Key(IInputUnit input) {
+            final FileObject source = input.source();
+            final String text = input.text();
+            this.langImpl = input.langImpl();
+            this.dialect = input.dialect();
+            this.source = source != null ? source.getName() : null;
+            this.length = text.length();
+            this.hash = text.hashCode();
+        }
+
+
+        @Override public int hashCode() {
+            return Objects.hashCode(langImpl, dialect, source, length, hash);
+        }
+
+        @Override public boolean equals(Object obj) {
+            if(this == obj) {
+                return true;
+            }
+            if(obj == null || getClass() != obj.getClass()) {
+                return false;
+            }
+            final Key other = (Key) obj;
+            return length == other.length && hash == other.hash && langImpl.equals(other.langImpl)
+                && Objects.equal(dialect, other.dialect) && Objects.equal(source, other.source);
+        }
+    }
+}
@@ -1,5 +1,7 @@
 package org.metaborg.spoofax.eclipse.processing;
 
+import java.util.Collection;
+
 import org.apache.commons.vfs2.FileObject;
 import org.eclipse.core.resources.IResource;
 import org.eclipse.core.resources.IWorkspace;
@@ -81,11 +83,13 @@ public class Processor<P extends IParseUnit, A extends IAnalyzeUnit, AU extends
             cancel = new NullCancel();
         }
         final Ref<IBuildOutput<P, A, AU, T>> outputRef = new Ref<>();
+        final Ref<Collection<IResource>> writtenRef = new Ref<>();
         final IWorkspaceRunnable runnable =
-            new BuildRunnable<>(resourceService, builder, input, progress, cancel, outputRef);
+            new BuildRunnable<>(resourceService, builder, input, progress, cancel, outputRef, writtenRef);
         final IResource projectResource = getResource(input.project);
-        final ITask<IBuildOutput<P, A, AU, T>> task =
-            new RunnableTask<>(workspace, runnable, projectResource, null, cancel, outputRef, projectResource);
+        // Only refresh the resources written by the build, or the entire project if the build did not complete.
+        final ITask<IBuildOutput<P, A, AU, T>> task = new RunnableTask<>("Building " + input.project, workspace,
+            runnable, projectResource, null, cancel, outputRef, projectResource, writtenRef);
         return task;
     }
 
@@ -95,8 +99,8 @@ public class Processor<P extends IParseUnit, A extends IAnalyzeUnit, AU extends
         }
         final IWorkspaceRunnable runnable = new CleanRunnable<>(builder, input, progress, cancel);
         final IResource projectResource = getResource(input.project);
-        final ITask<?> task =
-            new RunnableTask<>(workspace, runnable, projectResource, null, cancel, null, projectResource);
+        final ITask<?> task = new RunnableTask<>("Cleaning " + input.project, workspace, runnable, projectResource,
+            null, cancel, null, projectResource, null);
         return task;
     }
 
@@ -105,7 +109,8 @@ public class Processor<P extends IParseUnit, A extends IAnalyzeUnit, AU extends
         final ICancel cancel = new NullCancel();
         final IWorkspaceRunnable runnable = new ProcessDialectsRunnable(dialectProcessor, location, changes);
         final IResource projectResource = getResource(location);
-        final ITask<?> task = new RunnableTask<>(workspace, runnable, projectResource, null, cancel, null, null);
+        final ITask<?> task = new RunnableTask<>("Processing dialects in " + location, workspace, runnable,
+            projectResource, null, cancel, null, null, null);
         return task;
     }
 
@@ -1,84 +1,200 @@
 package org.metaborg.spoofax.eclipse.processing;
 
+import java.util.Collection;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+
+import org.eclipse.core.resources.IContainer;
 import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.IResourceRuleFactory;
 import org.eclipse.core.resources.IWorkspace;
 import org.eclipse.core.resources.IWorkspaceRunnable;
+import org.eclipse.core.resources.WorkspaceJob;
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.jobs.ISchedulingRule;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.core.runtime.jobs.MultiRule;
 import org.metaborg.core.processing.ITask;
 import org.metaborg.spoofax.eclipse.util.Nullable;
+import org.metaborg.spoofax.eclipse.util.StatusUtils;
 import org.metaborg.util.Ref;
+import org.metaborg.util.log.ILogger;
+import org.metaborg.util.log.LoggerUtils;
 import org.metaborg.util.task.ICancel;
 
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+
 /**
- * Task implementation for Eclipse workspace runnables.
+ * Task implementation for Eclipse workspace runnables. Scheduling the task schedules a job that runs the runnable, such
+ * that tasks run asynchronously, and {@link #block()} waits for the job. After running, refreshes the resources set in
+ * the refresh resources reference, or the refresh resource completely if that reference is not set or the task was
+ * cancelled. Runnables that set the reference must report all resources they write. Resources outside of the rule of
+ * the running thread are refreshed in a separate job.
+ *
+ * When the task is scheduled from a thread that already holds a rule that contains the rule of the task, such as a
+ * project builder, the runnable is run on that thread instead. A job with that rule can not start until the thread
+ * releases its rule, so blocking on the job would deadlock.
  */
-public class RunnableTask<T> implements ITask<T> {
-    private final IWorkspace workspace;
-
-    private final IWorkspaceRunnable runnable;
-    private final @Nullable ISchedulingRule rule;
-    private final @Nullable IProgressMonitor monitor;
-    private final ICancel cancel;
+public class RunnableTask<T> extends JobTask<T> {
+    private final RunnableJob job;
     private final @Nullable Ref<T> valueRef;
-    private final @Nullable IResource refreshResource;
 
-    private boolean completed = false;
 
+    public RunnableTask(String name, IWorkspace workspace, IWorkspaceRunnable runnable,
+        @Nullable ISchedulingRule rule, @Nullable IProgressMonitor monitor, ICancel cancel, @Nullable Ref<T> valueRef,
+        @Nullable IResource refreshResource, @Nullable Ref<Collection<IResource>> refreshResourcesRef) {
+        this(new RunnableJob(name, workspace, runnable, rule, monitor, cancel, refreshResource, refreshResourcesRef),
+            cancel, valueRef);
+    }
 
-    public RunnableTask(IWorkspace workspace, IWorkspaceRunnable runnable, @Nullable ISchedulingRule rule,
-        @Nullable IProgressMonitor monitor, ICancel cancel, @Nullable Ref<T> valueRef,
-        @Nullable IResource refreshResource) {
-        this.workspace = workspace;
-        this.runnable = runnable;
-        this.rule = rule;
-        this.monitor = monitor;
-        this.cancel = cancel;
+    private RunnableTask(RunnableJob job, ICancel cancel, @Nullable Ref<T> valueRef) {
+        super(job, cancel);
+        this.job = job;
         this.valueRef = valueRef;
-        this.refreshResource = refreshResource;
     }
 
 
     @Override public ITask<T> schedule() {
-        try {
-            workspace.run(runnable, rule, IWorkspace.AVOID_UPDATE, monitor);
-            if(refreshResource != null) {
-                refreshResource.refreshLocal(IResource.DEPTH_INFINITE, monitor);
-            }
-        } catch(CoreException e) {
-
+        final ISchedulingRule currentRule = Job.getJobManager().currentRule();
+        final ISchedulingRule rule = job.getRule();
+        if(currentRule != null && (rule == null || currentRule.contains(rule))) {
+            complete(job.execute(null));
+            return this;
         }
-        completed = true;
-        return this;
-    }
-
-    @Override public void cancel() {
-        cancel.cancel();
-    }
-
-    @Override public void cancel(int forceTimeout) {
-        cancel.cancel();
-        // TODO: kill after timeout
+        return super.schedule();
     }
 
-    @Override public boolean completed() {
-        return completed;
+    @Override public T result() {
+        return value(null);
     }
 
-    @Override public boolean cancelled() {
-        return cancel.cancelled();
-    }
 
-    @Override public T result() {
+    @Override protected @Nullable T value(@Nullable IStatus status) {
         if(valueRef == null) {
             return null;
         }
         return valueRef.get();
     }
 
-    @Override public ITask<T> block() throws InterruptedException {
-        // Does nothing, schedule already blocks.
-        return this;
+
+    private static class RunnableJob extends Job {
+        private static final ILogger logger = LoggerUtils.logger(RunnableJob.class);
+
+        private final IWorkspace workspace;
+        private final IWorkspaceRunnable runnable;
+        private final @Nullable IProgressMonitor monitor;
+        private final ICancel cancel;
+        private final @Nullable IResource refreshResource;
+        private final @Nullable Ref<Collection<IResource>> refreshResourcesRef;
+
+
+        public RunnableJob(String name, IWorkspace workspace, IWorkspaceRunnable runnable,
+            @Nullable ISchedulingRule rule, @Nullable IProgressMonitor monitor, ICancel cancel,
+            @Nullable IResource refreshResource, @Nullable Ref<Collection<IResource>> refreshResourcesRef) {
+            super(name);
+            setPriority(Job.BUILD);
+            setRule(rule);
+
+            this.workspace = workspace;
+            this.runnable = runnable;
+            this.monitor = monitor;
+            this.cancel = cancel;
+            this.refreshResource = refreshResource;
+            this.refreshResourcesRef = refreshResourcesRef;
+        }
+
+
+        @Override protected IStatus run(IProgressMonitor jobMonitor) {
+            return execute(jobMonitor);
+        }
+
+        @Override protected void canceling() {
+            cancel.cancel();
+        }
+
+
+        /**
+         * Runs the runnable and refreshes resources, using the monitor of the task, or given monitor if the task has
+         * no monitor.
+         */
+        public IStatus execute(@Nullable IProgressMonitor jobMonitor) {
+            final IProgressMonitor progressMonitor = monitor != null ? monitor : jobMonitor;
+            try {
+                workspace.run(runnable, getRule(), IWorkspace.AVOID_UPDATE, progressMonitor);
+                final Collection<IResource> refreshResources =
+                    refreshResourcesRef != null ? refreshResourcesRef.get() : null;
+                if(refreshResources != null && !cancel.cancelled()) {
+                    refresh(refreshResources, progressMonitor);
+                } else if(refreshResource != null) {
+                    // Written resources are not known when the runnable failed or was cancelled, refresh everything.
+                    refreshResource.refreshLocal(IResource.DEPTH_INFINITE, progressMonitor);
+                }
+            } catch(CoreException e) {
+                final String message = logger.format("{} failed unexpectedly", getName());
+                logger.error(message, e);
+                return StatusUtils.silentError(message, e);
+            }
+            if(cancel.cancelled()) {
+                return StatusUtils.cancel();
+            }
+            return StatusUtils.success();
+        }
+
+
+        private void refresh(Collection<IResource> resources, @Nullable IProgressMonitor progressMonitor)
+            throws CoreException {
+            final ISchedulingRule currentRule = Job.getJobManager().currentRule();
+            final IResourceRuleFactory ruleFactory = workspace.getRuleFactory();
+            final Set<IResource> refreshed = Sets.newHashSet();
+            final Map<IResource, Integer> deferred = Maps.newHashMap();
+            for(IResource resource : resources) {
+                // Resources in new folders are only discovered by refreshing the outermost new folder.
+                IResource target = resource;
+                int depth = IResource.DEPTH_ZERO;
+                IContainer parent = target.getParent();
+                while(parent != null && parent.getType() != IResource.ROOT && !parent.exists()) {
+                    target = parent;
+                    depth = IResource.DEPTH_INFINITE;
+                    parent = target.getParent();
+                }
+                if(!refreshed.add(target)) {
+                    continue;
+                }
+                final ISchedulingRule refreshRule = ruleFactory.refreshRule(target);
+                if(currentRule != null && refreshRule != null && !currentRule.contains(refreshRule)) {
+                    // Refreshing outside of the rule of this thread, for example files that a build wrote to another
+                    // project, is not allowed. Refresh them in a separate job instead.
+                    deferred.put(target, depth);
+                } else {
+                    target.refreshLocal(depth, progressMonitor);
+                }
+            }
+            if(!deferred.isEmpty()) {
+                refreshLater(deferred);
+            }
+        }
+
+        private void refreshLater(final Map<IResource, Integer> resources) {
+            final IResourceRuleFactory ruleFactory = workspace.getRuleFactory();
+            ISchedulingRule rule = null;
+            for(IResource resource : resources.keySet()) {
+                rule = MultiRule.combine(rule, ruleFactory.refreshRule(resource));
+            }
+            final WorkspaceJob job = new WorkspaceJob("Refreshing resources written by " + getName()) {
+                @Override public IStatus runInWorkspace(IProgressMonitor monitor) throws CoreException {
+                    for(Entry<IResource, Integer> entry : resources.entrySet()) {
+                        entry.getKey().refreshLocal(entry.getValue(), monitor);
+                    }
+                    return StatusUtils.success();
+                }
+            };
+            job.setRule(rule);
+            job.setSystem(true);
+            job.schedule();
+        }
     }
 }
@@ -25,6 +25,7 @@ import org.metaborg.spoofax.core.unit.ISpoofaxUnitService;
 import org.metaborg.spoofax.eclipse.SpoofaxPlugin;
 import org.metaborg.spoofax.eclipse.editor.IEclipseEditor;
 import org.metaborg.spoofax.eclipse.editor.IEclipseEditorRegistry;
+import org.metaborg.spoofax.eclipse.processing.ParseResultCache;
 import org.metaborg.spoofax.eclipse.resource.IEclipseResourceService;
 import org.metaborg.spoofax.eclipse.util.handler.AbstractHandlerUtils;
 import org.metaborg.util.iterators.Iterables2;
@@ -50,6 +51,7 @@ public class TransformHandler extends AbstractHandler {
     private final ISpoofaxTransformService transformService;
     private final ISpoofaxParseResultRequester parseResultRequester;
     private final ISpoofaxAnalysisResultRequester analysisResultRequester;
+    private final ParseResultCache parseCache;
     private final IEclipseEditorRegistry<?> editorRegistry;
 
 
@@ -66,6 +68,7 @@ public class TransformHandler extends AbstractHandler {
         this.transformService = injector.getInstance(ISpoofaxTransformService.class);
         this.parseResultRequester = injector.getInstance(ISpoofaxParseResultRequester.class);
         this.analysisResultRequester = injector.getInstance(ISpoofaxAnalysisResultRequester.class);
+        this.parseCache = injector.getInstance(ParseResultCache.class);
         this.editorRegistry =
             injector.getInstance(Key.get(new TypeLiteral<IEclipseEditorRegistry<IStrategoTerm>>() {}));
     }
@@ -123,7 +126,7 @@ public class TransformHandler extends AbstractHandler {
         }
 
         final Job transformJob = new TransformJob(contextService, unitService, transformService, parseResultRequester,
-            analysisResultRequester, language, resources, goal);
+            analysisResultRequester, parseCache, language, resources, goal);
         transformJob.schedule();
 
         return null;
@@ -22,44 +22,47 @@ import org.metaborg.spoofax.core.unit.ISpoofaxAnalyzeUnit;
 import org.metaborg.spoofax.core.unit.ISpoofaxInputUnit;
 import org.metaborg.spoofax.core.unit.ISpoofaxParseUnit;
 import org.metaborg.spoofax.core.unit.ISpoofaxUnitService;
-import org.metaborg.spoofax.eclipse.job.ThreadKillerJob;
+import org.metaborg.spoofax.eclipse.job.CancellationWatchdog;
+import org.metaborg.spoofax.eclipse.processing.ParseResultCache;
 import org.metaborg.spoofax.eclipse.util.StatusUtils;
 import org.metaborg.util.concurrent.IClosableLock;
 import org.metaborg.util.log.ILogger;
 import org.metaborg.util.log.LoggerUtils;
 
-import com.google.common.base.Joiner;
 import com.google.common.collect.Iterables;
 
 public class TransformJob extends Job {
     private static final ILogger logger = LoggerUtils.logger(TransformJob.class);
     private static final long interruptTimeMillis = 3000;
-    private static final long killTimeMillis = 5000;
+    private static final long killTimeMillis = 30000;
 
     private final IContextService contextService;
     private final ISpoofaxUnitService unitService;
     private final ISpoofaxTransformService transformService;
     private final ISpoofaxParseResultRequester parseResultRequester;
     private final ISpoofaxAnalysisResultRequester analysisResultRequester;
+    private final ParseResultCache parseCache;
 
     private final ILanguageImpl langImpl;
     private final Iterable<TransformResource> resources;
     private final ITransformGoal goal;
 
-    private ThreadKillerJob threadKiller;
+    private final CancellationWatchdog watchdog;
 
 
     public TransformJob(IContextService contextService, ISpoofaxUnitService unitService,
         ISpoofaxTransformService transformService, ISpoofaxParseResultRequester parseResultProcessor,
-        ISpoofaxAnalysisResultRequester analysisResultProcessor, ILanguageImpl langImpl,
+        ISpoofaxAnalysisResultRequester analysisResultProcessor, ParseResultCache parseCache, ILanguageImpl langImpl,
         Iterable<TransformResource> resources, ITransformGoal goal) {
         super("Transforming resources");
+        this.watchdog = new CancellationWatchdog(this, interruptTimeMillis, killTimeMillis);
 
         this.contextService = contextService;
         this.unitService = unitService;
         this.transformService = transformService;
         this.parseResultRequester = parseResultProcessor;
         this.analysisResultRequester = analysisResultProcessor;
+        this.parseCache = parseCache;
 
         this.langImpl = langImpl;
         this.resources = resources;
@@ -76,9 +79,7 @@ public class TransformJob extends Job {
         } catch(OperationCanceledException e) {
             return StatusUtils.cancel();
         } finally {
-            if(threadKiller != null) {
-                threadKiller.cancel();
-            }
+            watchdog.stopped();
             monitor.done();
         }
     }
@@ -88,11 +89,7 @@ public class TransformJob extends Job {
         if(thread == null) {
             return;
         }
-
-        logger.debug("Cancelling transform job for {}, interrupting in {}ms, killing in {}ms",
-            Joiner.on(", ").join(resources), interruptTimeMillis, interruptTimeMillis + killTimeMillis);
-        threadKiller = new ThreadKillerJob(thread, killTimeMillis);
-        threadKiller.schedule(interruptTimeMillis);
+        watchdog.cancelled(thread);
     }
 
     private IStatus transformAll(IProgressMonitor progressMonitor) throws InterruptedException, ThreadDeath {
@@ -122,7 +119,7 @@ public class TransformJob extends Job {
     }
 
     private void transform(ISpoofaxInputUnit input, IProject project, SubMonitor monitor)
-        throws ContextException, TransformException {
+        throws ContextException, TransformException, InterruptedException {
         final FileObject source = input.source();
         final IContext context = contextService.get(source, project, langImpl);
         if(transformService.requiresAnalysis(context, goal)) {
@@ -130,9 +127,11 @@ public class TransformJob extends Job {
             monitor.setTaskName("Waiting for analysis result");
             final ISpoofaxAnalyzeUnit result = analysisResultRequester.request(input, context).toBlocking().single();
             monitor.worked(1);
+            throwIfCancelled(monitor);
             monitor.setTaskName("Waiting for context read lock");
             try(IClosableLock lock = context.read()) {
                 monitor.worked(1);
+                throwIfCancelled(monitor);
                 monitor.setTaskName("Transforming " + source);
                 transformService.transform(result, context, goal);
                 monitor.worked(1);
@@ -140,11 +139,22 @@ public class TransformJob extends Job {
         } else {
             monitor.setWorkRemaining(2);
             monitor.setTaskName("Waiting for parse result");
-            final ISpoofaxParseUnit result = parseResultRequester.request(input).toBlocking().single();
+            ISpoofaxParseUnit result = parseCache.get(input);
+            if(result == null) {
+                result = parseResultRequester.request(input).toBlocking().single();
+                parseCache.put(result);
+            }
             monitor.worked(1);
+            throwIfCancelled(monitor);
             monitor.setTaskName("Transforming " + source);
             transformService.transform(result, context, goal);
             monitor.worked(1);
         }
     }
+
+    private static void throwIfCancelled(IProgressMonitor monitor) throws InterruptedException {
+        if(monitor.isCanceled()) {
+            throw new InterruptedException();
+        }
+    }
 }
@@ -1,18 +1,37 @@
 package org.metaborg.spoofax.eclipse.util;
 
+import java.util.Collection;
+import java.util.List;
+
 import org.eclipse.core.resources.IMarker;
 import org.eclipse.core.resources.IResource;
 import org.eclipse.core.runtime.CoreException;
 import org.metaborg.core.messages.IMessage;
+import org.metaborg.core.messages.MessageFactory;
 import org.metaborg.core.messages.MessageSeverity;
 import org.metaborg.core.messages.MessageType;
 import org.metaborg.core.source.ISourceRegion;
 import org.metaborg.spoofax.eclipse.SpoofaxPlugin;
 
+import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.ListMultimap;
+
 /**
- * Utility functions for creating and removing {@link IMarker} instances.
+ * Utility functions for creating and removing {@link IMarker} instances. The number of markers created for a resource
+ * is limited, messages over the limit are kept in {@link OverflowMessages} instead, and are summarized by a single
+ * marker.
  */
 public final class MarkerUtils {
+    /**
+     * Default maximum number of markers created for a single resource.
+     */
+    public static final int maxFileMarkers = 1000;
+    /**
+     * Default maximum number of markers created for all resources of a project in a single build.
+     */
+    public static final int maxProjectMarkers = 10000;
+
     private static final String id = SpoofaxPlugin.id + ".marker";
     private static final String parserId = id + ".parser";
     private static final String analysisId = id + ".analysis";
@@ -20,6 +39,8 @@ public final class MarkerUtils {
     private static final String infoPostfix = ".info";
     private static final String warningPostfix = ".warning";
     private static final String errorPostfix = ".error";
+    private static final String[] attributeNames = { IMarker.CHAR_START, IMarker.CHAR_END, IMarker.LINE_NUMBER,
+        IMarker.MESSAGE, IMarker.SEVERITY, IMarker.PRIORITY };
 
 
     /**
@@ -36,20 +57,110 @@ public final class MarkerUtils {
     public static IMarker createMarker(IResource resource, IMessage message) throws CoreException {
         final String type = type(message.type(), message.severity());
         final IMarker marker = resource.createMarker(type);
-        final ISourceRegion region = message.region();
-        if(region != null) {
-            marker.setAttribute(IMarker.CHAR_START, region.startOffset());
-            marker.setAttribute(IMarker.CHAR_END, region.endOffset() + 1);
-            marker.setAttribute(IMarker.LINE_NUMBER, region.startRow() + 1);
-        } else {
-            marker.setAttribute(IMarker.LINE_NUMBER, 1);
-        }
-        marker.setAttribute(IMarker.MESSAGE, message.message());
-        marker.setAttribute(IMarker.SEVERITY, severity(message.severity()));
-        marker.setAttribute(IMarker.PRIORITY, IMarker.PRIORITY_NORMAL);
+        // Set all attributes at once, which results in a single marker change.
+        marker.setAttributes(attributeNames, attributeValues(message));
         return marker;
     }
 
+    /**
+     * Reconciles the markers of given type on given resource with given messages. Markers that match a message are
+     * kept, markers that do not match any message are removed, and markers are only created for the remaining
+     * messages. Compared to clearing and recreating all markers, this only changes the markers that differ.
+     * 
+     * @param resource
+     *            Resource to reconcile markers for.
+     * @param type
+     *            Type of messages to reconcile existing markers of. Internal markers cannot be reconciled, since their
+     *            type is the supertype of all Spoofax markers, use {@link #reconcileAllMarkers} instead.
+     * @param messages
+     *            Messages to create markers for, at most {@link #maxFileMarkers}.
+     * @throws CoreException
+     *             When finding, creating, or deleting markers fails.
+     */
+    public static void reconcileMarkers(IResource resource, MessageType type, Iterable<? extends IMessage> messages)
+        throws CoreException {
+        reconcileMarkers(resource, type, messages, maxFileMarkers);
+    }
+
+    /**
+     * Reconciles the markers of given type on given resource with given messages, creating markers for at most given
+     * number of messages. Remaining messages replace the overflowed messages of given type in
+     * {@link OverflowMessages}.
+     * 
+     * @param resource
+     *            Resource to reconcile markers for.
+     * @param type
+     *            Type of messages to reconcile existing markers of.
+     * @param messages
+     *            Messages to create markers for.
+     * @param maxMarkers
+     *            Maximum number of messages to create markers for, excluding the markers that summarize the
+     *            overflowed messages.
+     * @return Number of messages that markers were created for.
+     * @throws CoreException
+     *             When finding, creating, or deleting markers fails.
+     */
+    public static int reconcileMarkers(IResource resource, MessageType type, Iterable<? extends IMessage> messages,
+        int maxMarkers) throws CoreException {
+        final ListMultimap<MessageType, IMessage> overflow = ArrayListMultimap.create();
+        final List<IMessage> limited = limit(messages, maxMarkers, overflow);
+        reconcile(resource, type(type), limited);
+        OverflowMessages.remove(resource, type);
+        OverflowMessages.add(resource, overflow);
+        return limited.size() - overflow.keySet().size();
+    }
+
+    /**
+     * Reconciles all Spoofax markers on given resource with given messages, which has the same result as clearing all
+     * markers and creating markers for given messages, but only changes the markers that differ.
+     * 
+     * @param resource
+     *            Resource to reconcile markers for.
+     * @param messages
+     *            Messages to create markers for.
+     * @param maxMarkers
+     *            Maximum number of messages to create markers for, excluding the markers that summarize the
+     *            overflowed messages. Remaining messages replace all overflowed messages of the resource in
+     *            {@link OverflowMessages}.
+     * @return Number of messages that markers were created for.
+     * @throws CoreException
+     *             When finding, creating, or deleting markers fails.
+     */
+    public static int reconcileAllMarkers(IResource resource, Iterable<? extends IMessage> messages, int maxMarkers)
+        throws CoreException {
+        final ListMultimap<MessageType, IMessage> overflow = ArrayListMultimap.create();
+        final List<IMessage> limited = limit(messages, maxMarkers, overflow);
+        reconcile(resource, id, limited);
+        OverflowMessages.remove(resource, null);
+        OverflowMessages.add(resource, overflow);
+        return limited.size() - overflow.keySet().size();
+    }
+
+    /**
+     * Creates markers on given resource for at most given number of messages, without removing existing markers.
+     * Remaining messages are added to the overflowed messages of the resource in {@link OverflowMessages}.
+     * 
+     * @param resource
+     *            Resource to create markers on.
+     * @param messages
+     *            Messages to create markers for.
+     * @param maxMarkers
+     *            Maximum number of messages to create markers for, excluding the markers that summarize the
+     *            overflowed messages.
+     * @return Number of messages that markers were created for.
+     * @throws CoreException
+     *             When creating markers fails.
+     */
+    public static int createMarkers(IResource resource, Iterable<? extends IMessage> messages, int maxMarkers)
+        throws CoreException {
+        final ListMultimap<MessageType, IMessage> overflow = ArrayListMultimap.create();
+        final List<IMessage> limited = limit(messages, maxMarkers, overflow);
+        for(IMessage message : limited) {
+            createMarker(resource, message);
+        }
+        OverflowMessages.add(resource, overflow);
+        return limited.size() - overflow.keySet().size();
+    }
 
     /**
      * Clears all Spoofax markers from given resource.
@@ -61,6 +172,7 @@ public final class MarkerUtils {
      */
     public static void clearAll(IResource resource) throws CoreException {
         resource.deleteMarkers(id, true, IResource.DEPTH_ZERO);
+        OverflowMessages.remove(resource, null);
     }
 
     /**
@@ -73,6 +185,7 @@ public final class MarkerUtils {
      */
     public static void clearAllRec(IResource resource) throws CoreException {
         resource.deleteMarkers(id, true, IResource.DEPTH_INFINITE);
+        OverflowMessages.removeRec(resource, null);
     }
 
     /**
@@ -87,6 +200,7 @@ public final class MarkerUtils {
         resource.deleteMarkers(type(MessageType.INTERNAL, MessageSeverity.ERROR), false, IResource.DEPTH_ZERO);
         resource.deleteMarkers(type(MessageType.INTERNAL, MessageSeverity.WARNING), false, IResource.DEPTH_ZERO);
         resource.deleteMarkers(type(MessageType.INTERNAL, MessageSeverity.NOTE), false, IResource.DEPTH_ZERO);
+        OverflowMessages.remove(resource, MessageType.INTERNAL);
     }
 
     /**
@@ -102,6 +216,7 @@ public final class MarkerUtils {
         resource.deleteMarkers(type(MessageType.INTERNAL, MessageSeverity.ERROR), false, IResource.DEPTH_INFINITE);
         resource.deleteMarkers(type(MessageType.INTERNAL, MessageSeverity.WARNING), false, IResource.DEPTH_INFINITE);
         resource.deleteMarkers(type(MessageType.INTERNAL, MessageSeverity.NOTE), false, IResource.DEPTH_INFINITE);
+        OverflowMessages.removeRec(resource, MessageType.INTERNAL);
     }
 
     /**
@@ -114,6 +229,7 @@ public final class MarkerUtils {
      */
     public static void clearParser(IResource resource) throws CoreException {
         resource.deleteMarkers(parserId, true, IResource.DEPTH_ZERO);
+        OverflowMessages.remove(resource, MessageType.PARSER);
     }
 
     /**
@@ -126,6 +242,7 @@ public final class MarkerUtils {
      */
     public static void clearParserRec(IResource resource) throws CoreException {
         resource.deleteMarkers(parserId, true, IResource.DEPTH_INFINITE);
+        OverflowMessages.removeRec(resource, MessageType.PARSER);
     }
 
     /**
@@ -138,6 +255,7 @@ public final class MarkerUtils {
      */
     public static void clearAnalysis(IResource resource) throws CoreException {
         resource.deleteMarkers(analysisId, true, IResource.DEPTH_ZERO);
+        OverflowMessages.remove(resource, MessageType.ANALYSIS);
     }
 
     /**
@@ -150,6 +268,7 @@ public final class MarkerUtils {
      */
     public static void clearAnalysisRec(IResource resource) throws CoreException {
         resource.deleteMarkers(analysisId, true, IResource.DEPTH_INFINITE);
+        OverflowMessages.removeRec(resource, MessageType.ANALYSIS);
     }
 
     /**
@@ -162,6 +281,7 @@ public final class MarkerUtils {
      */
     public static void clearTransformation(IResource resource) throws CoreException {
         resource.deleteMarkers(transformationId, true, IResource.DEPTH_ZERO);
+        OverflowMessages.remove(resource, MessageType.TRANSFORMATION);
     }
 
     /**
@@ -175,6 +295,74 @@ public final class MarkerUtils {
      */
     public static void clearTransformationRec(IResource resource) throws CoreException {
         resource.deleteMarkers(transformationId, true, IResource.DEPTH_INFINITE);
+        OverflowMessages.removeRec(resource, MessageType.TRANSFORMATION);
+    }
+
+
+    private static List<IMessage> limit(Iterable<? extends IMessage> messages, int maxMarkers,
+        ListMultimap<MessageType, IMessage> overflow) {
+        final List<IMessage> limited = Lists.newArrayList();
+        for(IMessage message : messages) {
+            if(limited.size() < maxMarkers) {
+                limited.add(message);
+            } else {
+                overflow.put(message.type(), message);
+            }
+        }
+        // Summarize the overflowed messages of each type with a marker of that type, such that it is cleared together
+        // with the other markers of that type.
+        for(MessageType type : overflow.keySet()) {
+            final List<IMessage> typeOverflow = overflow.get(type);
+            limited.add(MessageFactory.newWarningAtTop(typeOverflow.get(0).source(), typeOverflow.size()
+                + " more messages are not shown as markers; see the Spoofax overflowed messages view", type, null));
+        }
+        return limited;
+    }
+
+    private static void reconcile(IResource resource, String markerType, Iterable<? extends IMessage> messages)
+        throws CoreException {
+        final ListMultimap<List<Object>, IMarker> existing = ArrayListMultimap.create();
+        for(IMarker marker : resource.findMarkers(markerType, true, IResource.DEPTH_ZERO)) {
+            existing.put(key(marker.getType(), marker.getAttributes(attributeNames)), marker);
+        }
+
+        for(IMessage message : messages) {
+            final String type = type(message.type(), message.severity());
+            final List<IMarker> matching = existing.get(key(type, attributeValues(message)));
+            if(matching.isEmpty()) {
+                createMarker(resource, message);
+            } else {
+                matching.remove(matching.size() - 1);
+            }
+        }
+
+        final Collection<IMarker> obsolete = existing.values();
+        if(!obsolete.isEmpty()) {
+            resource.getWorkspace().deleteMarkers(obsolete.toArray(new IMarker[obsolete.size()]));
+        }
+    }
+
+
+    private static Object[] attributeValues(IMessage message) {
+        final ISourceRegion region = message.region();
+        final Object[] values = new Object[attributeNames.length];
+        if(region != null) {
+            values[0] = region.startOffset();
+            values[1] = region.endOffset() + 1;
+            values[2] = region.startRow() + 1;
+        } else {
+            values[2] = 1;
+        }
+        values[3] = message.message();
+        values[4] = severity(message.severity());
+        values[5] = IMarker.PRIORITY_NORMAL;
+        return values;
+    }
+
+    private static List<Object> key(String type, Object[] attributeValues) {
+        final List<Object> key = Lists.newArrayList(attributeValues);
+        key.add(type);
+        return key;
     }
 
 
@@ -0,0 +1,253 @@
+package org.metaborg.spoofax.eclipse.util;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.IResourceChangeEvent;
+import org.eclipse.core.resources.IResourceChangeListener;
+import org.eclipse.core.resources.IResourceDelta;
+import org.eclipse.core.resources.IResourceDeltaVisitor;
+import org.eclipse.core.resources.IWorkspace;
+import org.eclipse.core.runtime.CoreException;
+import org.metaborg.core.messages.IMessage;
+import org.metaborg.core.messages.MessageType;
+import org.metaborg.core.source.ISourceRegion;
+import org.metaborg.util.log.ILogger;
+import org.metaborg.util.log.LoggerUtils;
+
+import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ListMultimap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+/**
+ * In-memory store of messages that were not turned into markers, because the number of markers of a resource or project
+ * exceeded its limit. Messages are stored per resource and message type, and are replaced and removed together with the
+ * markers of that resource and type by {@link MarkerUtils}, or by editors that show messages of a resource as
+ * annotations instead of markers. Messages are removed when their resource is removed or its project is closed or
+ * deleted, once {@link #register(IWorkspace) registered}. At most {@link #maxResourceMessages} messages are stored per
+ * resource, and at most {@link #maxMessages} messages in total, further messages are dropped.
+ *
+ * THREADING: all methods are thread-safe.
+ */
+public final class OverflowMessages {
+    /**
+     * Maximum number of overflowed messages stored per resource.
+     */
+    public static final int maxResourceMessages = 10000;
+    /**
+     * Maximum number of overflowed messages stored in total.
+     */
+    public static final int maxMessages = 100000;
+
+    private static final ILogger logger = LoggerUtils.logger(OverflowMessages.class);
+    private static final Map<IResource, ListMultimap<MessageType, IMessage>> messages = Maps.newHashMap();
+    private static final IResourceChangeListener listener = new IResourceChangeListener() {
+        @Override public void resourceChanged(IResourceChangeEvent event) {
+            pruneRemoved(event);
+        }
+    };
+    private static int size;
+    private static volatile int modifications;
+
+
+    /**
+     * Registers a listener with given workspace that removes the overflowed messages of removed resources, and of
+     * projects that are closed or deleted.
+     */
+    public static void register(IWorkspace workspace) {
+        workspace.addResourceChangeListener(listener,
+            IResourceChangeEvent.PRE_CLOSE | IResourceChangeEvent.PRE_DELETE | IResourceChangeEvent.POST_CHANGE);
+    }
+
+    /**
+     * Unregisters the listener that was registered with given workspace, and removes all overflowed messages.
+     */
+    public static void unregister(IWorkspace workspace) {
+        workspace.removeResourceChangeListener(listener);
+        synchronized(messages) {
+            messages.clear();
+            size = 0;
+            ++modifications;
+        }
+    }
+
+
+    /**
+     * @return Snapshot of the number of overflowed messages per resource.
+     */
+    public static Map<IResource, Integer> resources() {
+        final ImmutableMap.Builder<IResource, Integer> builder = ImmutableMap.builder();
+        synchronized(messages) {
+            for(Entry<IResource, ListMultimap<MessageType, IMessage>> entry : messages.entrySet()) {
+                builder.put(entry.getKey(), entry.getValue().size());
+            }
+        }
+        return builder.build();
+    }
+
+    /**
+     * @return Snapshot of the overflowed messages of given resource.
+     */
+    public static List<IMessage> get(IResource resource) {
+        synchronized(messages) {
+            final ListMultimap<MessageType, IMessage> resourceMessages = messages.get(resource);
+            if(resourceMessages == null) {
+                return ImmutableList.of();
+            }
+            return ImmutableList.copyOf(resourceMessages.values());
+        }
+    }
+
+    /**
+     * Returns the overflowed messages of given resource whose region intersects with given region.
+     *
+     * @param resource
+     *            Resource to get messages for.
+     * @param offset
+     *            Start offset of the region.
+     * @param length
+     *            Length of the region.
+     * @return Snapshot of the intersecting messages.
+     */
+    public static List<IMessage> get(IResource resource, int offset, int length) {
+        final List<IMessage> intersecting = Lists.newArrayList();
+        for(IMessage message : get(resource)) {
+            final ISourceRegion region = message.region();
+            if(region != null && region.startOffset() <= offset + length && region.endOffset() >= offset) {
+                intersecting.add(message);
+            }
+        }
+        return intersecting;
+    }
+
+    /**
+     * @return Total number of overflowed messages.
+     */
+    public static int size() {
+        synchronized(messages) {
+            return size;
+        }
+    }
+
+    /**
+     * @return Number of modifications made to the store, which can be used to detect changes.
+     */
+    public static int modifications() {
+        return modifications;
+    }
+
+    /**
+     * Replaces the overflowed messages of given type of given resource with given messages, for messages that are not
+     * shown as markers but as annotations in an editor.
+     *
+     * @param resource
+     *            Resource to replace messages of.
+     * @param type
+     *            Type of the messages.
+     * @param overflow
+     *            Overflowed messages, which replace the stored messages. Can be empty to remove the stored messages.
+     */
+    public static void replace(IResource resource, MessageType type, Iterable<? extends IMessage> overflow) {
+        final ListMultimap<MessageType, IMessage> typeOverflow = ArrayListMultimap.create();
+        typeOverflow.putAll(type, overflow);
+        synchronized(messages) {
+            remove(resource, type);
+            add(resource, typeOverflow);
+        }
+    }
+
+
+    static void add(IResource resource, ListMultimap<MessageType, IMessage> overflow) {
+        if(overflow.isEmpty()) {
+            return;
+        }
+        synchronized(messages) {
+            ListMultimap<MessageType, IMessage> resourceMessages = messages.get(resource);
+            if(resourceMessages == null) {
+                resourceMessages = ArrayListMultimap.create();
+                messages.put(resource, resourceMessages);
+            }
+            int dropped = 0;
+            for(Entry<MessageType, IMessage> entry : overflow.entries()) {
+                if(resourceMessages.size() < maxResourceMessages && size < maxMessages) {
+                    resourceMessages.put(entry.getKey(), entry.getValue());
+                    ++size;
+                } else {
+                    ++dropped;
+                }
+            }
+            if(resourceMessages.isEmpty()) {
+                messages.remove(resource);
+            }
+            if(dropped > 0) {
+                logger.debug("Dropped {} overflowed messages of {}, the maximum number of messages is stored", dropped,
+                    resource);
+            }
+            ++modifications;
+        }
+    }
+
+    static void remove(IResource resource, @Nullable MessageType type) {
+        synchronized(messages) {
+            final ListMultimap<MessageType, IMessage> resourceMessages = messages.get(resource);
+            if(resourceMessages == null) {
+                return;
+            }
+            if(type == null) {
+                size -= resourceMessages.size();
+                messages.remove(resource);
+            } else {
+                size -= resourceMessages.removeAll(type).size();
+                if(resourceMessages.isEmpty()) {
+                    messages.remove(resource);
+                }
+            }
+            ++modifications;
+        }
+    }
+
+    static void removeRec(IResource resource, @Nullable MessageType type) {
+        synchronized(messages) {
+            for(IResource stored : Lists.newArrayList(messages.keySet())) {
+                if(resource.getFullPath().isPrefixOf(stored.getFullPath())) {
+                    remove(stored, type);
+                }
+            }
+        }
+    }
+
+
+    private static void pruneRemoved(IResourceChangeEvent event) {
+        synchronized(messages) {
+            if(messages.isEmpty()) {
+                return;
+            }
+        }
+        if(event.getType() == IResourceChangeEvent.PRE_CLOSE || event.getType() == IResourceChangeEvent.PRE_DELETE) {
+            removeRec(event.getResource(), null);
+            return;
+        }
+        final IResourceDelta delta = event.getDelta();
+        if(delta == null) {
+            return;
+        }
+        try {
+            delta.accept(new IResourceDeltaVisitor() {
+                @Override public boolean visit(IResourceDelta delta) throws CoreException {
+                    if(delta.getKind() == IResourceDelta.REMOVED) {
+                        removeRec(delta.getResource(), null);
+                        return false;
+                    }
+                    return true;
+                }
+            });
+        } catch(CoreException e) {
+            logger.error("Cannot remove overflowed messages of removed resources", e);
+        }
+    }
+}